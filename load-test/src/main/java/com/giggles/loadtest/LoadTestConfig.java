@@ -0,0 +1,43 @@
+package com.giggles.loadtest;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+// All settings come from -Dloadtest.* system properties so runs are reproducible from the command line
+public class LoadTestConfig {
+    
+    final String baseUrl = get("base-url", "http://localhost:8080");
+    final double rate = Double.parseDouble(get("rate", "50"));
+    final boolean poisson = Boolean.parseBoolean(get("poisson", "true"));
+    final int warmupSeconds = Integer.parseInt(get("warmup-seconds", "10"));
+    final int durationSeconds = Integer.parseInt(get("duration-seconds", "60"));
+    final int maxInFlight = Integer.parseInt(get("max-in-flight", "2000"));
+    final int timeoutSeconds = Integer.parseInt(get("timeout-seconds", "30"));
+    final long seed = Long.parseLong(get("seed", "42"));
+    final int existingUsers = Integer.parseInt(get("existing-users", "100"));
+    final int lockedUsers = Integer.parseInt(get("locked-users", "20"));
+    final String runId = get("run-id", Long.toString(System.currentTimeMillis(), 36));
+    final String jdbcUrl = get("jdbc-url", "jdbc:postgresql://localhost:5432/giggles_db");
+    final String jdbcUser = get("jdbc-user", "postgres");
+    final String jdbcPassword = get("jdbc-password", "postgres");
+    final String histogramDir = get("histogram-dir", "target/loadtest");
+    final Map<Scenario, Double> mix = new EnumMap<>(Scenario.class);
+    
+    LoadTestConfig() {
+        mix.put(Scenario.SIGNUP, Double.parseDouble(get("mix.signup", "0.10")));
+        mix.put(Scenario.LOGIN, Double.parseDouble(get("mix.login", "0.70")));
+        mix.put(Scenario.WRONG_PASSWORD, Double.parseDouble(get("mix.wrong-password", "0.10")));
+        mix.put(Scenario.UNKNOWN_USER, Double.parseDouble(get("mix.unknown-user", "0.05")));
+        mix.put(Scenario.LOCKED_ACCOUNT, Double.parseDouble(get("mix.locked-account", "0.05")));
+    }
+    
+    private static String get(String key, String defaultValue) {
+        return System.getProperty("loadtest." + key, defaultValue);
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("baseUrl=%s rate=%.1f/s arrivals=%s warmup=%ds duration=%ds seed=%d runId=%s mix=%s",
+                baseUrl, rate, poisson ? "poisson" : "uniform", warmupSeconds, durationSeconds, seed, runId, mix);
+    }
+}
@@ -0,0 +1,297 @@
+package com.giggles.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// Open-model load generator: requests are issued on a fixed arrival schedule regardless of how fast
+// the service answers. Latency is measured from the intended send time (coordinated-omission
+// corrected) and from the actual send time (service time), so queueing shows up in the former.
+// Arrivals the client cannot send are recorded in the corrected histogram at the request timeout.
+public class LoadTestRunner {
+    
+    private static final String PASSWORD = "LoadTest#Password1";
+    private static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(5);
+    
+    private final LoadTestConfig config;
+    private final HttpClient httpClient;
+    private final Random random;
+    private final Map<Scenario, Histogram> corrected = new EnumMap<>(Scenario.class);
+    private final Map<Scenario, Histogram> uncorrected = new EnumMap<>(Scenario.class);
+    private final Map<Scenario, AtomicLong> attempts = new EnumMap<>(Scenario.class);
+    private final Map<Scenario, AtomicLong> errors = new EnumMap<>(Scenario.class);
+    private final AtomicLong droppedSaturated = new AtomicLong();
+    private final AtomicLong droppedNoAccount = new AtomicLong();
+    private final AtomicLong signupSequence = new AtomicLong();
+    // Seeded accounts not currently in flight. Each arrival borrows its own account: the service
+    // coalesces identical concurrent requests, so shared credentials would measure the coalescer.
+    private final Queue<String> idleUsers = new ConcurrentLinkedQueue<>();
+    private final Queue<String> idleLockedUsers = new ConcurrentLinkedQueue<>();
+    
+    public LoadTestRunner(LoadTestConfig config) {
+        this.config = config;
+        this.random = new Random(config.seed);
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newFixedThreadPool(Math.max(4, Runtime.getRuntime().availableProcessors())))
+                .build();
+        for (Scenario scenario : Scenario.values()) {
+            corrected.put(scenario, new ConcurrentHistogram(HIGHEST_TRACKABLE_NANOS, 3));
+            uncorrected.put(scenario, new ConcurrentHistogram(HIGHEST_TRACKABLE_NANOS, 3));
+            attempts.put(scenario, new AtomicLong());
+            errors.put(scenario, new AtomicLong());
+        }
+    }
+    
+    public static void main(String[] args) throws Exception {
+        LoadTestConfig config = new LoadTestConfig();
+        System.out.println("Load test: " + config);
+        LoadTestRunner runner = new LoadTestRunner(config);
+        runner.seedUsers();
+        
+        if (config.warmupSeconds > 0) {
+            System.out.printf("Warming up for %ds...%n", config.warmupSeconds);
+            runner.run(config.warmupSeconds);
+            runner.reset();
+        }
+        System.out.printf("Measuring for %ds...%n", config.durationSeconds);
+        long elapsedNanos = runner.run(config.durationSeconds);
+        runner.report(elapsedNanos);
+        System.exit(0);
+    }
+    
+    // Existing and locked accounts are created through the API, then locked directly in PostgreSQL
+    // because the service has no endpoint that locks an account.
+    private void seedUsers() throws Exception {
+        System.out.printf("Seeding %d users and %d locked users for run %s...%n",
+                config.existingUsers, config.lockedUsers, config.runId);
+        for (int i = 0; i < config.existingUsers; i++) {
+            expectStatus(send(signupBody(existingEmail(i))).join(), 200, "seed user " + i);
+            idleUsers.add(existingEmail(i));
+        }
+        for (int i = 0; i < config.lockedUsers; i++) {
+            expectStatus(send(signupBody(lockedEmail(i))).join(), 200, "seed locked user " + i);
+            idleLockedUsers.add(lockedEmail(i));
+        }
+        if (config.lockedUsers > 0) {
+            try (Connection connection = DriverManager.getConnection(config.jdbcUrl, config.jdbcUser, config.jdbcPassword);
+                 PreparedStatement statement = connection.prepareStatement(
+                         "UPDATE users SET is_locked = true WHERE email LIKE ?")) {
+                statement.setString(1, "lt-" + config.runId + "-locked-%");
+                System.out.printf("Locked %d accounts%n", statement.executeUpdate());
+            } catch (SQLException e) {
+                throw new IllegalStateException("Could not lock seeded accounts in " + config.jdbcUrl, e);
+            }
+        }
+    }
+    
+    private long run(int seconds) throws InterruptedException {
+        Semaphore inFlight = new Semaphore(config.maxInFlight);
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(seconds);
+        double meanIntervalNanos = TimeUnit.SECONDS.toNanos(1) / config.rate;
+        double nextArrival = start;
+        
+        while (nextArrival < end) {
+            long intendedStart = (long) nextArrival;
+            long wait = intendedStart - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            nextArrival += config.poisson
+                    ? -Math.log(1.0 - random.nextDouble()) * meanIntervalNanos
+                    : meanIntervalNanos;
+            
+            Scenario scenario = pickScenario();
+            attempts.get(scenario).incrementAndGet();
+            Queue<String> accounts = accountPool(scenario);
+            String account = accounts == null ? null : accounts.poll();
+            if (accounts != null && account == null) {
+                // Every seeded account of this kind is busy; raise loadtest.existing-users / locked-users
+                drop(scenario, droppedNoAccount);
+                continue;
+            }
+            if (!inFlight.tryAcquire()) {
+                // The client is saturated; count it instead of silently slowing the arrival rate
+                if (account != null) {
+                    accounts.add(account);
+                }
+                drop(scenario, droppedSaturated);
+                continue;
+            }
+            String body = bodyFor(scenario, account);
+            long actualStart = System.nanoTime();
+            send(body).whenComplete((response, error) -> {
+                long now = System.nanoTime();
+                corrected.get(scenario).recordValue(Math.min(now - intendedStart, HIGHEST_TRACKABLE_NANOS));
+                uncorrected.get(scenario).recordValue(Math.min(now - actualStart, HIGHEST_TRACKABLE_NANOS));
+                if (error != null || response.statusCode() != scenario.getExpectedStatus()) {
+                    errors.get(scenario).incrementAndGet();
+                }
+                if (account != null) {
+                    accounts.add(account);
+                }
+                inFlight.release();
+            });
+        }
+        // Let outstanding requests finish so their (possibly long) latencies are counted
+        inFlight.tryAcquire(config.maxInFlight, config.timeoutSeconds, TimeUnit.SECONDS);
+        return System.nanoTime() - start;
+    }
+    
+    // A dropped arrival never gets a response, so as far as its caller is concerned it timed out. Leaving it
+    // out of the corrected histogram would hide exactly the overload the open model is meant to expose.
+    private void drop(Scenario scenario, AtomicLong reason) {
+        reason.incrementAndGet();
+        errors.get(scenario).incrementAndGet();
+        corrected.get(scenario).recordValue(Math.min(TimeUnit.SECONDS.toNanos(config.timeoutSeconds), HIGHEST_TRACKABLE_NANOS));
+    }
+    
+    private Queue<String> accountPool(Scenario scenario) {
+        return switch (scenario) {
+            case LOGIN, WRONG_PASSWORD -> idleUsers;
+            case LOCKED_ACCOUNT -> idleLockedUsers;
+            case SIGNUP, UNKNOWN_USER -> null;
+        };
+    }
+    
+    private Scenario pickScenario() {
+        double total = config.mix.values().stream().mapToDouble(Double::doubleValue).sum();
+        double pick = random.nextDouble() * total;
+        for (Map.Entry<Scenario, Double> entry : config.mix.entrySet()) {
+            pick -= entry.getValue();
+            if (pick < 0) {
+                return entry.getKey();
+            }
+        }
+        return Scenario.LOGIN;
+    }
+    
+    private String bodyFor(Scenario scenario, String account) {
+        return switch (scenario) {
+            case SIGNUP -> signupBody("lt-" + config.runId + "-new-" + signupSequence.incrementAndGet() + "@loadtest.local");
+            case LOGIN, LOCKED_ACCOUNT -> loginBody(account, PASSWORD);
+            case WRONG_PASSWORD -> loginBody(account, "wrong-password");
+            case UNKNOWN_USER -> loginBody("lt-" + config.runId + "-unknown-" + random.nextInt() + "@loadtest.local", PASSWORD);
+        };
+    }
+    
+    private CompletableFuture<HttpResponse<Void>> send(String body) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(config.baseUrl + "/api/auth/signup-or-login"))
+                .timeout(Duration.ofSeconds(config.timeoutSeconds))
+                .header("Content-Type", "application/json")
+                .header("User-Agent", "giggles-load-test")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding());
+    }
+    
+    private void reset() {
+        corrected.values().forEach(Histogram::reset);
+        uncorrected.values().forEach(Histogram::reset);
+        attempts.values().forEach(counter -> counter.set(0));
+        errors.values().forEach(counter -> counter.set(0));
+        droppedSaturated.set(0);
+        droppedNoAccount.set(0);
+    }
+    
+    private void report(long elapsedNanos) throws IOException {
+        double seconds = elapsedNanos / 1e9;
+        Histogram allCorrected = new Histogram(HIGHEST_TRACKABLE_NANOS, 3);
+        Histogram allUncorrected = new Histogram(HIGHEST_TRACKABLE_NANOS, 3);
+        long totalAttempts = 0;
+        long totalErrors = 0;
+        
+        System.out.println();
+        System.out.printf("%-16s %8s %9s %7s | %-44s | %-44s%n", "scenario", "count", "req/s", "err%",
+                "corrected ms  p50 / p90 / p99 / p99.9 / max", "service ms  p50 / p90 / p99 / p99.9 / max");
+        for (Scenario scenario : Scenario.values()) {
+            Histogram c = corrected.get(scenario);
+            Histogram u = uncorrected.get(scenario);
+            long attemptCount = attempts.get(scenario).get();
+            long errorCount = errors.get(scenario).get();
+            allCorrected.add(c);
+            allUncorrected.add(u);
+            totalAttempts += attemptCount;
+            totalErrors += errorCount;
+            printRow(scenario.name(), attemptCount, seconds, errorCount, c, u);
+            writeHistogram(scenario.name().toLowerCase(), c);
+        }
+        printRow("ALL", totalAttempts, seconds, totalErrors, allCorrected, allUncorrected);
+        writeHistogram("all", allCorrected);
+        System.out.printf("%nDropped (recorded at the %ds timeout): %d client saturated, %d no idle account. "
+                        + "Histograms written to %s%n", config.timeoutSeconds, droppedSaturated.get(), droppedNoAccount.get(),
+                Path.of(config.histogramDir).toAbsolutePath());
+    }
+    
+    private void printRow(String name, long attemptCount, double seconds, long errorCount, Histogram c, Histogram u) {
+        System.out.printf("%-16s %8d %9.1f %6.2f%% | %-44s | %-44s%n", name, attemptCount, u.getTotalCount() / seconds,
+                attemptCount == 0 ? 0.0 : 100.0 * errorCount / attemptCount, percentiles(c), percentiles(u));
+    }
+    
+    private String percentiles(Histogram histogram) {
+        return String.format("%.1f / %.1f / %.1f / %.1f / %.1f",
+                histogram.getValueAtPercentile(50) / 1e6,
+                histogram.getValueAtPercentile(90) / 1e6,
+                histogram.getValueAtPercentile(99) / 1e6,
+                histogram.getValueAtPercentile(99.9) / 1e6,
+                histogram.getMaxValue() / 1e6);
+    }
+    
+    private void writeHistogram(String name, Histogram histogram) throws IOException {
+        Path dir = Path.of(config.histogramDir);
+        Files.createDirectories(dir);
+        try (PrintStream out = new PrintStream(new FileOutputStream(
+                dir.resolve(config.runId + "-" + name + ".hgrm").toFile()))) {
+            histogram.outputPercentileDistribution(out, 1e6);
+        }
+    }
+    
+    private void expectStatus(HttpResponse<Void> response, int expected, String what) {
+        if (response.statusCode() != expected) {
+            throw new IllegalStateException(what + " returned HTTP " + response.statusCode());
+        }
+    }
+    
+    private String existingEmail(int index) {
+        return "lt-" + config.runId + "-user-" + index + "@loadtest.local";
+    }
+    
+    private String lockedEmail(int index) {
+        return "lt-" + config.runId + "-locked-" + index + "@loadtest.local";
+    }
+    
+    private static String signupBody(String email) {
+        return "{\"isSignup\":true,\"name\":\"Load Test\",\"email\":\"" + email + "\",\"password\":\"" + PASSWORD + "\"}";
+    }
+    
+    private static String loginBody(String email, String password) {
+        return "{\"isSignup\":false,\"email\":\"" + email + "\",\"password\":\"" + password + "\"}";
+    }
+}
@@ -0,0 +1,19 @@
+package com.giggles.loadtest;
+
+public enum Scenario {
+    SIGNUP(200),
+    LOGIN(200),
+    WRONG_PASSWORD(401),
+    UNKNOWN_USER(404),
+    LOCKED_ACCOUNT(423);
+    
+    private final int expectedStatus;
+    
+    Scenario(int expectedStatus) {
+        this.expectedStatus = expectedStatus;
+    }
+    
+    public int getExpectedStatus() {
+        return expectedStatus;
+    }
+}
@@ -1,7 +1,63 @@
 package com.giggles.auth.config;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.SqsAsyncClientBuilder;
 
+import java.net.URI;
+import java.time.Duration;
+
+@Configuration
+@ConditionalOnProperty(name = "outbox.enabled", havingValue = "true")
 public class AwsConfig {
     
+    @Value("${aws.sqs.region:us-east-1}")
+    private String region;
+    
+    // Set to a local SQS-compatible endpoint (e.g. ElasticMQ) for development and testing
+    @Value("${aws.sqs.endpoint:}")
+    private String endpoint;
+    
+    @Value("${aws.sqs.access-key:}")
+    private String accessKey;
+    
+    @Value("${aws.sqs.secret-key:}")
+    private String secretKey;
+    
+    // Caps a whole SendMessageBatch call including retries, and each single attempt
+    @Value("${aws.sqs.api-call-timeout-ms:10000}")
+    private long apiCallTimeoutMs;
+    
+    @Value("${aws.sqs.api-call-attempt-timeout-ms:3000}")
+    private long apiCallAttemptTimeoutMs;
+    
+    @Bean(destroyMethod = "close")
+    public SqsAsyncClient sqsAsyncClient() {
+        SqsAsyncClientBuilder builder = SqsAsyncClient.builder()
+                .region(Region.of(region))
+                .credentialsProvider(credentialsProvider())
+                .overrideConfiguration(config -> config
+                        .apiCallTimeout(Duration.ofMillis(apiCallTimeoutMs))
+                        .apiCallAttemptTimeout(Duration.ofMillis(apiCallAttemptTimeoutMs)));
+        
+        if (!endpoint.isEmpty()) {
+            builder.endpointOverride(URI.create(endpoint));
+        }
+        return builder.build();
+    }
+    
+    private AwsCredentialsProvider credentialsProvider() {
+        if (!accessKey.isEmpty() && !secretKey.isEmpty()) {
+            return StaticCredentialsProvider.create(AwsBasicCredentials.create(accessKey, secretKey));
+        }
+        return DefaultCredentialsProvider.create();
+    }
 }
-
@@ -0,0 +1,35 @@
+package com.giggles.auth.config;
+
+import com.giggles.auth.jfr.SlowRequestMonitor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+// The auth JFR events are emitted whenever a recording enables them (e.g. -XX:StartFlightRecording);
+// this only adds the opt-in in-process monitor that watches them continuously.
+@Configuration
+@ConditionalOnProperty(name = "profiling.jfr.monitor.enabled", havingValue = "true")
+public class JfrConfig {
+    
+    @Value("${profiling.jfr.monitor.slow-threshold-ms:500}")
+    private long slowThresholdMs;
+    
+    @Value("${profiling.jfr.monitor.max-age-minutes:5}")
+    private long maxAgeMinutes;
+    
+    @Value("${profiling.jfr.monitor.dump-dir:}")
+    private String dumpDir;
+    
+    @Value("${profiling.jfr.monitor.min-dump-interval-ms:60000}")
+    private long minDumpIntervalMs;
+    
+    @Bean(initMethod = "start", destroyMethod = "close")
+    public SlowRequestMonitor slowRequestMonitor() {
+        return new SlowRequestMonitor(Duration.ofMillis(slowThresholdMs), Duration.ofMinutes(maxAgeMinutes),
+                dumpDir.isBlank() ? null : Path.of(dumpDir), minDumpIntervalMs);
+    }
+}
@@ -5,11 +5,15 @@ import io.swagger.v3.oas.models.info.Info;
 import io.swagger.v3.oas.models.info.Contact;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
 
+// Only needed when API docs are requested, so keep it off the startup path
 @Configuration
+@Lazy
 public class OpenApiConfig {
     
     @Bean
+    @Lazy
     public OpenAPI customOpenAPI() {
         return new OpenAPI()
                 .info(new Info()
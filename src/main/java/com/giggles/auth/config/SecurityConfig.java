@@ -1,28 +1,46 @@
 package com.giggles.auth.config;
 
+import com.giggles.auth.enums.UserRole;
+import com.giggles.auth.filter.SessionAuthenticationFilter;
+import com.giggles.auth.repository.session.SessionStore;
+import com.giggles.auth.service.SessionActivityTracker;
+import com.giggles.auth.sharding.ShardRouter;
+import com.giggles.auth.sharding.UserDirectory;
+import com.giggles.auth.util.JwtUtil;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.HttpStatusEntryPoint;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
 @Configuration
 @EnableWebSecurity
 public class SecurityConfig {
     
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain securityFilterChain(HttpSecurity http, JwtUtil jwtUtil, SessionStore sessionStore,
+                                                   SessionActivityTracker sessionActivityTracker,
+                                                   ShardRouter shardRouter, UserDirectory userDirectory) throws Exception {
         http
             .csrf(csrf -> csrf.disable())
             .authorizeHttpRequests(auth -> auth
+                .requestMatchers("/api/admin/**").hasRole(UserRole.ADMIN.name())
                 .anyRequest().permitAll()
             )
             .sessionManagement(session -> session
                 .sessionCreationPolicy(SessionCreationPolicy.STATELESS)
-            );
+            )
+            .exceptionHandling(exceptions -> exceptions
+                .authenticationEntryPoint(new HttpStatusEntryPoint(HttpStatus.UNAUTHORIZED))
+            )
+            .addFilterBefore(new SessionAuthenticationFilter(jwtUtil, sessionStore, sessionActivityTracker,
+                    shardRouter, userDirectory),
+                    UsernamePasswordAuthenticationFilter.class);
         
         return http.build();
     }
 }
-
@@ -0,0 +1,50 @@
+package com.giggles.auth.config;
+
+import com.giggles.auth.repository.UserRepository;
+import com.giggles.auth.repository.UserSessionRepository;
+import com.giggles.auth.repository.session.AuditingSessionStore;
+import com.giggles.auth.repository.session.InMemorySessionStore;
+import com.giggles.auth.repository.session.JpaSessionStore;
+import com.giggles.auth.repository.session.RedisSessionStore;
+import com.giggles.auth.repository.session.SessionStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+@Configuration
+@Slf4j
+public class SessionStoreConfig {
+    
+    @Value("${session.store.type:jpa}")
+    private String storeType;
+    
+    @Value("${session.store.audit-enabled:true}")
+    private boolean auditEnabled;
+    
+    @Value("${session.store.memory.shards:64}")
+    private int memoryShards;
+    
+    @Value("${session.store.redis.key-prefix:giggles-auth:}")
+    private String redisKeyPrefix;
+    
+    @Bean
+    public SessionStore sessionStore(UserRepository userRepository, UserSessionRepository userSessionRepository,
+                                     ObjectProvider<StringRedisTemplate> redisTemplate) {
+        JpaSessionStore jpaSessionStore = new JpaSessionStore(userRepository, userSessionRepository);
+        SessionStore store = switch (storeType) {
+            case "jpa" -> jpaSessionStore;
+            case "memory" -> new InMemorySessionStore(memoryShards);
+            case "redis" -> new RedisSessionStore(redisTemplate.getObject(), redisKeyPrefix);
+            default -> throw new IllegalStateException("Unknown session.store.type: " + storeType);
+        };
+        log.info("Using {} session store (audit: {})", storeType, auditEnabled && store != jpaSessionStore);
+        
+        if (store != jpaSessionStore && auditEnabled) {
+            return new AuditingSessionStore(store, jpaSessionStore);
+        }
+        return store;
+    }
+}
@@ -0,0 +1,82 @@
+package com.giggles.auth.config;
+
+import com.giggles.auth.sharding.ShardRouter;
+import com.giggles.auth.sharding.ShardRoutingDataSource;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.Flyway;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// With sharding.enabled=true the application DataSource routes between one Hikari pool per shard
+// and Flyway migrates every shard; otherwise Boot's spring.datasource.* pool is used as before.
+@Configuration
+@EnableConfigurationProperties(ShardingProperties.class)
+@Slf4j
+public class ShardingConfig {
+    
+    private static final String MAX_ID_SQL =
+            "SELECT GREATEST((SELECT COALESCE(MAX(id), 0) FROM users), (SELECT COALESCE(MAX(id), 0) FROM user_sessions))";
+    
+    @Bean
+    public ShardRouter shardRouter(ShardingProperties properties) {
+        return new ShardRouter(properties);
+    }
+    
+    @Bean
+    @Primary
+    @ConditionalOnProperty(name = "sharding.enabled", havingValue = "true")
+    public ShardRoutingDataSource dataSource(ShardingProperties properties) {
+        Map<Integer, DataSource> shards = new LinkedHashMap<>();
+        for (ShardingProperties.Shard shard : properties.getShards()) {
+            HikariConfig config = new HikariConfig();
+            config.setPoolName("shard-" + shard.getId());
+            config.setJdbcUrl(shard.getUrl());
+            config.setUsername(shard.getUsername());
+            config.setPassword(shard.getPassword());
+            config.setMaximumPoolSize(properties.getPoolSize());
+            shards.put(shard.getId(), new HikariDataSource(config));
+        }
+        if (!shards.containsKey(properties.getDefaultShard())) {
+            throw new IllegalStateException("sharding.default-shard " + properties.getDefaultShard() + " is not configured");
+        }
+        log.info("Sharding enabled across shards {} (id stride {})", shards.keySet(), properties.getIdStride());
+        return new ShardRoutingDataSource(shards, properties.getDefaultShard());
+    }
+    
+    // Boot's Flyway only sees the default shard; migrate each shard instead and align its id sequences
+    @Bean
+    @ConditionalOnProperty(name = "sharding.enabled", havingValue = "true")
+    public FlywayMigrationStrategy shardedFlywayMigrationStrategy(ShardRoutingDataSource dataSource,
+                                                                  ShardingProperties properties) {
+        return flyway -> {
+            dataSource.getShards().forEach((shardId, shardDataSource) -> {
+                Flyway.configure()
+                        .configuration(flyway.getConfiguration())
+                        .dataSource(shardDataSource)
+                        .load()
+                        .migrate();
+                log.info("Migrated shard {}", shardId);
+            });
+            long maxId = 0;
+            for (DataSource shardDataSource : dataSource.getShards().values()) {
+                Long shardMaxId = new JdbcTemplate(shardDataSource).queryForObject(MAX_ID_SQL, Long.class);
+                maxId = Math.max(maxId, shardMaxId == null ? 0 : shardMaxId);
+            }
+            for (Map.Entry<Integer, DataSource> shard : dataSource.getShards().entrySet()) {
+                new JdbcTemplate(shard.getValue()).queryForObject("SELECT align_id_sequences(?, ?, ?)::text",
+                        String.class, shard.getKey(), properties.getIdStride(), maxId);
+            }
+        };
+    }
+}
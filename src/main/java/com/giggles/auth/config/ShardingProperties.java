@@ -0,0 +1,38 @@
+package com.giggles.auth.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "sharding")
+public class ShardingProperties {
+    
+    private boolean enabled = false;
+    
+    // Ids are generated so that id % idStride == shard id; this caps the number of shards and must never change
+    private int idStride = 16;
+    
+    private int virtualNodes = 128;
+    
+    private int poolSize = 10;
+    
+    // Shard used for work that isn't tied to a user (e.g. Flyway's default connection)
+    private int defaultShard = 0;
+    
+    private List<Shard> shards = new ArrayList<>();
+    
+    // Shard ids of the ring before the last topology change; lookups fall back to it until rebalancing finishes
+    private List<Integer> previousRing = new ArrayList<>();
+    
+    @Data
+    public static class Shard {
+        
+        private int id;
+        private String url;
+        private String username;
+        private String password;
+    }
+}
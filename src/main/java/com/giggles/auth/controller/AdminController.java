@@ -0,0 +1,50 @@
+package com.giggles.auth.controller;
+
+import com.giggles.auth.dto.request.AdminSessionFilter;
+import com.giggles.auth.dto.request.AdminUserFilter;
+import com.giggles.auth.dto.response.RebalanceResponse;
+import com.giggles.auth.dto.response.RevokeSessionsResponse;
+import com.giggles.auth.service.AdminService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+// Requires ROLE_ADMIN (see SecurityConfig). List endpoints return {"items": [...], "nextCursor": id|null};
+// pass nextCursor back as "after" to fetch the next page.
+@RestController
+@RequestMapping("/api/admin")
+@Slf4j
+public class AdminController {
+    
+    private final AdminService adminService;
+    
+    public AdminController(AdminService adminService) {
+        this.adminService = adminService;
+    }
+    
+    @GetMapping("/users")
+    public ResponseEntity<StreamingResponseBody> listUsers(@ModelAttribute AdminUserFilter filter) {
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(adminService.streamUsers(filter));
+    }
+    
+    @GetMapping("/sessions")
+    public ResponseEntity<StreamingResponseBody> listSessions(@ModelAttribute AdminSessionFilter filter) {
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(adminService.streamSessions(filter));
+    }
+    
+    @PostMapping("/sessions/revoke")
+    public ResponseEntity<RevokeSessionsResponse> revokeSessions(@RequestBody AdminSessionFilter filter) {
+        log.info("Received bulk session revoke request: {}", filter);
+        int revoked = adminService.revokeSessions(filter);
+        return ResponseEntity.ok(RevokeSessionsResponse.builder().revoked(revoked).build());
+    }
+    
+    // Moves users and directory rows onto the shards the current ring assigns them
+    @PostMapping("/shards/rebalance")
+    public ResponseEntity<RebalanceResponse> rebalanceShards() {
+        log.info("Received shard rebalance request");
+        return ResponseEntity.ok(adminService.rebalanceShards());
+    }
+}
@@ -0,0 +1,34 @@
+package com.giggles.auth.dto.request;
+
+import com.giggles.auth.enums.UserSessionStatus;
+import lombok.Data;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDateTime;
+
+@Data
+public class AdminSessionFilter {
+    
+    private UserSessionStatus status;
+    
+    private Long userId;
+    
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime expiresAfter;
+    
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime expiresBefore;
+    
+    private String ipAddress;
+    
+    // Matches sessions whose user agent starts with this value
+    private String userAgent;
+    
+    // Keyset cursor: only sessions with a greater id are returned
+    private Long after;
+    
+    private Integer limit;
+    
+    // Shard to list when sharding is enabled; revocation covers all shards if it is not set
+    private Integer shard;
+}
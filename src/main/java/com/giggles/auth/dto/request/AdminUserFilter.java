@@ -0,0 +1,22 @@
+package com.giggles.auth.dto.request;
+
+import com.giggles.auth.enums.UserRole;
+import lombok.Data;
+
+@Data
+public class AdminUserFilter {
+    
+    private UserRole role;
+    
+    private Boolean locked;
+    
+    private Boolean deleted;
+    
+    // Keyset cursor: only users with a greater id are returned
+    private Long after;
+    
+    private Integer limit;
+    
+    // Shard to list when sharding is enabled; ids are only ordered within a shard, so cursors are per shard
+    private Integer shard;
+}
@@ -1,6 +1,5 @@
 package com.giggles.auth.dto.request;
 
-import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import lombok.Data;
 
@@ -19,7 +18,9 @@ public class SignUpOrLoginRequest {
     
     private String address;
     
-    @NotBlank(message = "Password is required")
+    // Required unless logging in with a Firebase phone OTP ID token
     private String password;
+    
+    private String firebaseIdToken;
 }
 
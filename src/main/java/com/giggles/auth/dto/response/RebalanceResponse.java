@@ -0,0 +1,23 @@
+package com.giggles.auth.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RebalanceResponse {
+    
+    // Directory rows moved to the shard their identifier hashes to, registered or repointed at a moved user
+    private int identifiersMoved;
+    
+    private int usersMoved;
+    
+    private int sessionsMoved;
+    
+    // Rows left in place after an error; they are retried by the next run
+    private int failed;
+}
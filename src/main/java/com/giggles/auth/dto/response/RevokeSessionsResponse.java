@@ -0,0 +1,15 @@
+package com.giggles.auth.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RevokeSessionsResponse {
+    
+    private int revoked;
+}
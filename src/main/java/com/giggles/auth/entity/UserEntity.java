@@ -19,10 +19,11 @@ public class UserEntity extends BaseEntity {
     @Column(name = "name")
     private String name;
     
-    @Column(name = "email", unique = true)
+    // email and phone_number are unique among non-deleted users only, via partial indexes (V4 migration)
+    @Column(name = "email")
     private String email;
     
-    @Column(name = "phone_number", unique = true)
+    @Column(name = "phone_number")
     private String phoneNumber;
     
     @Column(name = "address")
@@ -32,5 +32,9 @@ public class UserSessionEntity extends BaseEntity {
     
     @Column(name = "user_agent")
     private String userAgent;
+    
+    // Written in batches by SessionActivityTracker, never on the request path
+    @Column(name = "last_seen_at")
+    private LocalDateTime lastSeenAt;
 }
 
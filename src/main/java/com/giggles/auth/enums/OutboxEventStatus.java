@@ -0,0 +1,7 @@
+package com.giggles.auth.enums;
+
+public enum OutboxEventStatus {
+    PENDING,
+    SENT,
+    FAILED
+}
@@ -0,0 +1,6 @@
+package com.giggles.auth.enums;
+
+public enum OutboxEventType {
+    USER_SIGNED_UP,
+    USER_LOGGED_IN
+}
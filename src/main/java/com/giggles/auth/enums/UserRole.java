@@ -1,7 +1,26 @@
 package com.giggles.auth.enums;
 
 public enum UserRole {
-    USER,
-    ADMIN
+    USER(0),
+    ADMIN(1);
+    
+    // Stable numeric code used in compact tokens; never reuse or renumber
+    private final int code;
+    
+    UserRole(int code) {
+        this.code = code;
+    }
+    
+    public int getCode() {
+        return code;
+    }
+    
+    public static UserRole fromCode(int code) {
+        for (UserRole role : values()) {
+            if (role.code == code) {
+                return role;
+            }
+        }
+        throw new IllegalArgumentException("Unknown role code: " + code);
+    }
 }
-
@@ -10,5 +10,9 @@ public class ErrorCode {
     public static final String INVALID_TOKEN = "INVALID_TOKEN";
     public static final String TOKEN_EXPIRED = "TOKEN_EXPIRED";
     public static final String UNAUTHORIZED = "UNAUTHORIZED";
+    public static final String IDEMPOTENCY_KEY_REUSED = "IDEMPOTENCY_KEY_REUSED";
+    public static final String INVALID_FILTER = "INVALID_FILTER";
+    public static final String SHARDING_NOT_ENABLED = "SHARDING_NOT_ENABLED";
+    public static final String REBALANCE_IN_PROGRESS = "REBALANCE_IN_PROGRESS";
 }
 
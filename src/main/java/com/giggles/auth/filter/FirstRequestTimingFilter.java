@@ -0,0 +1,36 @@
+package com.giggles.auth.filter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Logs JVM-start-to-first-response time once, so boot changes can be compared on the same number
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@Slf4j
+public class FirstRequestTimingFilter extends OncePerRequestFilter {
+    
+    private final AtomicBoolean reported = new AtomicBoolean();
+    
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            if (!reported.get() && reported.compareAndSet(false, true)) {
+                log.info("Time to first request: {} ms since JVM start", ManagementFactory.getRuntimeMXBean().getUptime());
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.giggles.auth.filter;
+
+import com.giggles.auth.repository.session.SessionRecord;
+import com.giggles.auth.repository.session.SessionStore;
+import com.giggles.auth.service.SessionActivityTracker;
+import com.giggles.auth.sharding.ShardRouter;
+import com.giggles.auth.sharding.UserDirectory;
+import com.giggles.auth.util.JwtUtil;
+import com.giggles.auth.util.TokenClaims;
+import io.jsonwebtoken.JwtException;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+
+// Authenticates bearer tokens against their session and records session activity.
+// Registered only inside the security filter chain (see SecurityConfig), not as a servlet filter.
+public class SessionAuthenticationFilter extends OncePerRequestFilter {
+    
+    private static final String BEARER_PREFIX = "Bearer ";
+    
+    private final JwtUtil jwtUtil;
+    private final SessionStore sessionStore;
+    private final SessionActivityTracker sessionActivityTracker;
+    private final ShardRouter shardRouter;
+    private final UserDirectory userDirectory;
+    
+    public SessionAuthenticationFilter(JwtUtil jwtUtil, SessionStore sessionStore,
+                                       SessionActivityTracker sessionActivityTracker, ShardRouter shardRouter,
+                                       UserDirectory userDirectory) {
+        this.jwtUtil = jwtUtil;
+        this.sessionStore = sessionStore;
+        this.sessionActivityTracker = sessionActivityTracker;
+        this.shardRouter = shardRouter;
+        this.userDirectory = userDirectory;
+    }
+    
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String authorization = request.getHeader("Authorization");
+        if (authorization != null && authorization.startsWith(BEARER_PREFIX)) {
+            authenticate(authorization.substring(BEARER_PREFIX.length()).trim());
+        }
+        filterChain.doFilter(request, response);
+    }
+    
+    private void authenticate(String token) {
+        TokenClaims claims;
+        try {
+            claims = jwtUtil.parseToken(token);
+        } catch (JwtException | IllegalArgumentException e) {
+            return;
+        }
+        boolean valid = findSession(claims, token)
+                .map(session -> session.isActive(System.currentTimeMillis()))
+                .orElse(false);
+        if (!valid) {
+            return;
+        }
+        
+        UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
+                claims.userId(), null, List.of(new SimpleGrantedAuthority("ROLE_" + claims.role())));
+        SecurityContextHolder.getContext().setAuthentication(authentication);
+        sessionActivityTracker.recordActivity(token);
+    }
+    
+    // The token names the shard its session was created on. If the rebalancer has moved the user since, the
+    // forwarding row it left there names the next shard; no other shard is ever asked. The hop limit only
+    // guards against rows left over from a failed move.
+    private Optional<SessionRecord> findSession(TokenClaims claims, String token) {
+        Integer shard = claims.shardId();
+        Optional<SessionRecord> session = shardRouter.callOn(shard, () -> sessionStore.findByToken(token));
+        if (!shardRouter.isEnabled() || shard == null) {
+            return session;
+        }
+        for (int hops = 0; session.isEmpty() && hops < shardRouter.getShardIds().size(); hops++) {
+            Optional<Integer> movedTo = userDirectory.movedTo(shard, claims.userId());
+            if (movedTo.isEmpty()) {
+                break;
+            }
+            shard = movedTo.get();
+            session = shardRouter.callOn(shard, () -> sessionStore.findByToken(token));
+        }
+        return session;
+    }
+}
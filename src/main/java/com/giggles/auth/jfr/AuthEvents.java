@@ -0,0 +1,118 @@
+package com.giggles.auth.jfr;
+
+import com.giggles.auth.exception.AuthenticationException;
+import com.giggles.auth.exception.CommonException;
+
+import java.security.SecureRandom;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// Emits AuthRequestEvent / AuthStageEvent around the steps of a signup or login. When no recording
+// has the events enabled, each call costs an isEnabled() check and nothing is allocated.
+public final class AuthEvents {
+    
+    public static final String OK = "OK";
+    public static final String NOT_FOUND = "NOT_FOUND";
+    
+    // Per-process salt: hashes correlate events within one recording but can't be mapped back to user ids
+    private static final long SALT = new SecureRandom().nextLong();
+    private static final AtomicLong REQUEST_IDS = new AtomicLong();
+    private static final ThreadLocal<AuthRequestEvent> CURRENT = new ThreadLocal<>();
+    private static final AuthRequestEvent REQUEST_PROBE = new AuthRequestEvent();
+    private static final AuthStageEvent STAGE_PROBE = new AuthStageEvent();
+    
+    private AuthEvents() {
+    }
+    
+    public static <T> T request(String operation, Supplier<T> action) {
+        if (!REQUEST_PROBE.isEnabled()) {
+            return action.get();
+        }
+        AuthRequestEvent event = new AuthRequestEvent();
+        event.requestId = REQUEST_IDS.incrementAndGet();
+        event.operation = operation;
+        AuthRequestEvent outer = CURRENT.get();
+        CURRENT.set(event);
+        String outcome = OK;
+        event.begin();
+        try {
+            return action.get();
+        } catch (RuntimeException e) {
+            outcome = outcomeOf(e);
+            throw e;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.outcome = outcome;
+                event.commit();
+            }
+            CURRENT.set(outer);
+        }
+    }
+    
+    // An empty Optional is recorded as NOT_FOUND and a Boolean result as TRUE / FALSE
+    public static <T> T stage(String stage, Long userId, Supplier<T> action) {
+        if (!STAGE_PROBE.isEnabled()) {
+            return action.get();
+        }
+        AuthStageEvent event = new AuthStageEvent();
+        event.stage = stage;
+        String outcome = OK;
+        event.begin();
+        try {
+            T result = action.get();
+            if (result instanceof Optional<?> optional && optional.isEmpty()) {
+                outcome = NOT_FOUND;
+            } else if (result instanceof Boolean bool) {
+                outcome = bool ? "TRUE" : "FALSE";
+            }
+            return result;
+        } catch (RuntimeException e) {
+            outcome = outcomeOf(e);
+            throw e;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                AuthRequestEvent request = CURRENT.get();
+                event.userIdHash = userIdHash(userId);
+                event.outcome = outcome;
+                if (request != null) {
+                    event.requestId = request.requestId;
+                    if (userId != null) {
+                        request.userIdHash = event.userIdHash;
+                    }
+                }
+                event.commit();
+            }
+        }
+    }
+    
+    public static void stage(String stage, Long userId, Runnable action) {
+        stage(stage, userId, () -> {
+            action.run();
+            return null;
+        });
+    }
+    
+    private static long userIdHash(Long userId) {
+        if (userId == null) {
+            return 0L;
+        }
+        // SplitMix64 finalizer over the salted id
+        long z = userId ^ SALT;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+    
+    private static String outcomeOf(RuntimeException e) {
+        if (e instanceof AuthenticationException authenticationException) {
+            return authenticationException.getErrorCode();
+        }
+        if (e instanceof CommonException commonException) {
+            return commonException.getErrorCode();
+        }
+        return e.getClass().getSimpleName();
+    }
+}
@@ -0,0 +1,31 @@
+package com.giggles.auth.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// One signup or login, from the start of its transaction to commit. Stage events share its requestId.
+@Name(AuthRequestEvent.NAME)
+@Label("Auth Request")
+@Category({"Giggles Auth"})
+@Description("A signup or login handled by AuthenticationService")
+@StackTrace(false)
+public class AuthRequestEvent extends Event {
+    
+    public static final String NAME = "com.giggles.auth.AuthRequest";
+    
+    @Label("Request Id")
+    long requestId;
+    
+    @Label("Operation")
+    String operation;
+    
+    @Label("User Id Hash")
+    long userIdHash;
+    
+    @Label("Outcome")
+    String outcome;
+}
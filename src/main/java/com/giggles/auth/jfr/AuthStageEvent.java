@@ -0,0 +1,31 @@
+package com.giggles.auth.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// One step of a signup or login: a BCrypt call, a repository call, token generation or the session save
+@Name(AuthStageEvent.NAME)
+@Label("Auth Stage")
+@Category({"Giggles Auth"})
+@Description("A single stage of a signup or login")
+@StackTrace(false)
+public class AuthStageEvent extends Event {
+    
+    public static final String NAME = "com.giggles.auth.AuthStage";
+    
+    @Label("Request Id")
+    long requestId;
+    
+    @Label("Stage")
+    String stage;
+    
+    @Label("User Id Hash")
+    long userIdHash;
+    
+    @Label("Outcome")
+    String outcome;
+}
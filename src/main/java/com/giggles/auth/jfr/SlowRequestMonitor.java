@@ -0,0 +1,123 @@
+package com.giggles.auth.jfr;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// In-process continuous recording of the auth events. Stage events are held per request until the
+// request event arrives; requests slower than the threshold are logged with their stages and, when a
+// dump directory is set, the recording's recent history is written to a .jfr file (rate-limited).
+// All callbacks run on the stream's own thread.
+@Slf4j
+public class SlowRequestMonitor {
+    
+    // Stage events whose request event never arrives (e.g. a disabled request event) are dropped after this many requests
+    private static final int MAX_PENDING_REQUESTS = 10_000;
+    
+    private final Duration slowThreshold;
+    private final Duration maxAge;
+    private final Path dumpDirectory;
+    private final long minDumpIntervalMs;
+    private final TreeMap<Long, List<Stage>> pendingStages = new TreeMap<>();
+    private final ExecutorService dumpExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "jfr-slow-request-dump");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    private RecordingStream stream;
+    private long lastDumpAt;
+    
+    public SlowRequestMonitor(Duration slowThreshold, Duration maxAge, Path dumpDirectory, long minDumpIntervalMs) {
+        this.slowThreshold = slowThreshold;
+        this.maxAge = maxAge;
+        this.dumpDirectory = dumpDirectory;
+        this.minDumpIntervalMs = minDumpIntervalMs;
+    }
+    
+    public void start() {
+        stream = new RecordingStream();
+        stream.enable(AuthRequestEvent.NAME).withThreshold(Duration.ZERO);
+        stream.enable(AuthStageEvent.NAME).withThreshold(Duration.ZERO);
+        stream.setMaxAge(maxAge);
+        stream.onEvent(AuthStageEvent.NAME, this::onStage);
+        stream.onEvent(AuthRequestEvent.NAME, this::onRequest);
+        stream.startAsync();
+        log.info("JFR slow request monitor started (threshold {} ms)", slowThreshold.toMillis());
+    }
+    
+    public void close() {
+        if (stream != null) {
+            stream.close();
+        }
+        dumpExecutor.shutdownNow();
+    }
+    
+    private void onStage(RecordedEvent event) {
+        pendingStages.computeIfAbsent(event.getLong("requestId"), id -> new ArrayList<>())
+                .add(new Stage(event.getString("stage"), event.getString("outcome"), event.getDuration()));
+    }
+    
+    private void onRequest(RecordedEvent event) {
+        long requestId = event.getLong("requestId");
+        List<Stage> stages = pendingStages.remove(requestId);
+        pendingStages.headMap(requestId - MAX_PENDING_REQUESTS).clear();
+        
+        Duration duration = event.getDuration();
+        if (duration.compareTo(slowThreshold) < 0) {
+            return;
+        }
+        
+        StringBuilder tree = new StringBuilder();
+        tree.append(String.format("Slow %s request #%d took %.1f ms (outcome %s, user %016x, thread %s)",
+                event.getString("operation"), requestId, millis(duration), event.getString("outcome"),
+                event.getLong("userIdHash"), event.getThread() == null ? "?" : event.getThread().getJavaName()));
+        long accountedNanos = 0;
+        if (stages != null) {
+            for (Stage stage : stages) {
+                tree.append(String.format("%n  %-28s %9.1f ms  %s", stage.name(), millis(stage.duration()), stage.outcome()));
+                accountedNanos += stage.duration().toNanos();
+            }
+        }
+        tree.append(String.format("%n  %-28s %9.1f ms", "(outside stages)", (duration.toNanos() - accountedNanos) / 1e6));
+        log.warn(tree.toString());
+        
+        dumpIfDue(requestId);
+    }
+    
+    private void dumpIfDue(long requestId) {
+        long now = System.currentTimeMillis();
+        if (dumpDirectory == null || now - lastDumpAt < minDumpIntervalMs) {
+            return;
+        }
+        lastDumpAt = now;
+        Path file = dumpDirectory.resolve("slow-auth-request-" + requestId + "-" + now + ".jfr");
+        // dump() waits for in-flight data to be flushed, which must not happen on the stream's own thread
+        dumpExecutor.execute(() -> {
+            try {
+                Files.createDirectories(dumpDirectory);
+                stream.dump(file);
+                log.warn("Dumped recent JFR history to {}", file);
+            } catch (IOException | RuntimeException e) {
+                log.error("Failed to dump JFR recording to {}", file, e);
+            }
+        });
+    }
+    
+    private static double millis(Duration duration) {
+        return duration.toNanos() / 1e6;
+    }
+    
+    private record Stage(String name, String outcome, Duration duration) {
+    }
+}
@@ -0,0 +1,32 @@
+package com.giggles.auth.repository;
+
+import com.giggles.auth.entity.OutboxEventEntity;
+import com.giggles.auth.enums.OutboxEventStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEventEntity, Long> {
+    
+    // SKIP LOCKED lets several relay instances drain the table without blocking each other
+    @Query(value = "SELECT * FROM outbox_events WHERE status = 'PENDING' AND next_attempt_at <= :now " +
+                   "ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<OutboxEventEntity> claimPending(@Param("now") LocalDateTime now, @Param("limit") int limit);
+    
+    @Modifying
+    @Query("UPDATE OutboxEventEntity e SET e.status = :status, e.sentAt = :now, e.updatedAt = :now WHERE e.id IN :ids")
+    int markSent(@Param("ids") Collection<Long> ids,
+                 @Param("status") OutboxEventStatus status,
+                 @Param("now") LocalDateTime now);
+    
+    @Modifying
+    @Query("DELETE FROM OutboxEventEntity e WHERE e.status = :status AND e.sentAt < :before")
+    int deleteSentBefore(@Param("status") OutboxEventStatus status, @Param("before") LocalDateTime before);
+}
@@ -2,6 +2,8 @@ package com.giggles.auth.repository;
 
 import com.giggles.auth.entity.UserEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -9,12 +11,18 @@ import java.util.Optional;
 @Repository
 public interface UserRepository extends JpaRepository<UserEntity, Long> {
     
-    Optional<UserEntity> findByPhoneNumberAndDeletedFalse(String phoneNumber);
+    // "deleted = false" is written as a literal so the predicate matches the partial unique indexes
+    // uk_users_email_active / uk_users_phone_number_active (see the V9 migration)
     
-    Optional<UserEntity> findByEmailAndDeletedFalse(String email);
+    @Query("SELECT u FROM UserEntity u WHERE u.phoneNumber = :phoneNumber AND u.deleted = false")
+    Optional<UserEntity> findActiveByPhoneNumber(@Param("phoneNumber") String phoneNumber);
     
-    boolean existsByPhoneNumberAndDeletedFalse(String phoneNumber);
+    @Query("SELECT u FROM UserEntity u WHERE u.email = :email AND u.deleted = false")
+    Optional<UserEntity> findActiveByEmail(@Param("email") String email);
     
-    boolean existsByEmailAndDeletedFalse(String email);
+    @Query("SELECT COUNT(u) > 0 FROM UserEntity u WHERE u.phoneNumber = :phoneNumber AND u.deleted = false")
+    boolean existsActiveByPhoneNumber(@Param("phoneNumber") String phoneNumber);
+    
+    @Query("SELECT COUNT(u) > 0 FROM UserEntity u WHERE u.email = :email AND u.deleted = false")
+    boolean existsActiveByEmail(@Param("email") String email);
 }
-
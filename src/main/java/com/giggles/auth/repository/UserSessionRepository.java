@@ -1,9 +1,17 @@
 package com.giggles.auth.repository;
 
 import com.giggles.auth.entity.UserSessionEntity;
+import com.giggles.auth.enums.UserSessionStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -12,5 +20,32 @@ public interface UserSessionRepository extends JpaRepository<UserSessionEntity,
     Optional<UserSessionEntity> findByToken(String token);
     
     boolean existsByToken(String token);
+    
+    @Query("SELECT s FROM UserSessionEntity s WHERE s.user.id = :userId AND s.userSessionStatus = :status AND s.expiry > :now")
+    List<UserSessionEntity> findActiveByUserId(@Param("userId") Long userId,
+                                               @Param("status") UserSessionStatus status,
+                                               @Param("now") LocalDateTime now);
+    
+    @Transactional
+    @Modifying
+    @Query("UPDATE UserSessionEntity s SET s.userSessionStatus = :status, s.updatedAt = :now WHERE s.token = :token")
+    int updateStatusByToken(@Param("token") String token,
+                            @Param("status") UserSessionStatus status,
+                            @Param("now") LocalDateTime now);
+    
+    @Transactional
+    @Modifying
+    @Query("UPDATE UserSessionEntity s SET s.userSessionStatus = :status, s.updatedAt = :now WHERE s.token IN :tokens")
+    int updateStatusByTokens(@Param("tokens") Collection<String> tokens,
+                             @Param("status") UserSessionStatus status,
+                             @Param("now") LocalDateTime now);
+    
+    @Transactional
+    @Modifying
+    @Query("UPDATE UserSessionEntity s SET s.userSessionStatus = :newStatus, s.updatedAt = :now " +
+           "WHERE s.user.id = :userId AND s.userSessionStatus = :currentStatus AND s.expiry < :now")
+    int invalidateExpiredByUserId(@Param("userId") Long userId,
+                                  @Param("currentStatus") UserSessionStatus currentStatus,
+                                  @Param("newStatus") UserSessionStatus newStatus,
+                                  @Param("now") LocalDateTime now);
 }
-
@@ -0,0 +1,69 @@
+package com.giggles.auth.repository.session;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+// Serves reads from the cache backend and writes state changes through to the relational audit store
+public class AuditingSessionStore implements SessionStore {
+    
+    private final SessionStore primary;
+    private final SessionStore audit;
+    
+    public AuditingSessionStore(SessionStore primary, SessionStore audit) {
+        this.primary = primary;
+        this.audit = audit;
+    }
+    
+    @Override
+    public void create(SessionRecord session) {
+        audit.create(session);
+        // Only cache the session once the audit row commits, so a rolled-back login leaves no usable token
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    primary.create(session);
+                }
+            });
+        } else {
+            primary.create(session);
+        }
+    }
+    
+    @Override
+    public Optional<SessionRecord> findByToken(String token) {
+        return primary.findByToken(token);
+    }
+    
+    @Override
+    public List<SessionRecord> findActiveByUserId(Long userId) {
+        return primary.findActiveByUserId(userId);
+    }
+    
+    @Override
+    public void invalidate(String token) {
+        primary.invalidate(token);
+        audit.invalidate(token);
+    }
+    
+    @Override
+    public void expireAll(Collection<String> tokens) {
+        primary.expireAll(tokens);
+        audit.expireAll(tokens);
+    }
+    
+    @Override
+    public void invalidateCached(Collection<String> tokens) {
+        primary.invalidateCached(tokens);
+    }
+    
+    @Override
+    public int expireStaleSessions(Long userId) {
+        audit.expireStaleSessions(userId);
+        return primary.expireStaleSessions(userId);
+    }
+}
@@ -0,0 +1,144 @@
+package com.giggles.auth.repository.session;
+
+import com.giggles.auth.enums.UserSessionStatus;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Sharded in-process store for single-node and test deployments. Records are evicted lazily
+// on read and by an incremental sweep that visits one shard every SWEEP_INTERVAL writes.
+public class InMemorySessionStore implements SessionStore {
+    
+    private static final int SWEEP_INTERVAL = 1024;
+    
+    private final ConcurrentHashMap<String, SessionRecord>[] shards;
+    private final int shardMask;
+    private final ConcurrentHashMap<Long, Set<String>> sessionsByUser = new ConcurrentHashMap<>();
+    private final AtomicLong writes = new AtomicLong();
+    
+    @SuppressWarnings("unchecked")
+    public InMemorySessionStore(int shardCount) {
+        int size = Integer.highestOneBit(Math.max(1, shardCount - 1) << 1);
+        this.shards = new ConcurrentHashMap[size];
+        for (int i = 0; i < size; i++) {
+            shards[i] = new ConcurrentHashMap<>();
+        }
+        this.shardMask = size - 1;
+    }
+    
+    @Override
+    public void create(SessionRecord session) {
+        shardFor(session.getToken()).put(session.getToken(), session);
+        // Add under the map's lock so remove() can't drop the set between lookup and add
+        sessionsByUser.compute(session.getUserId(), (userId, tokens) -> {
+            Set<String> userTokens = tokens != null ? tokens : ConcurrentHashMap.newKeySet();
+            userTokens.add(session.getToken());
+            return userTokens;
+        });
+        
+        long count = writes.incrementAndGet();
+        if (count % SWEEP_INTERVAL == 0) {
+            sweep(shards[(int) ((count / SWEEP_INTERVAL) & shardMask)], System.currentTimeMillis());
+        }
+    }
+    
+    @Override
+    public Optional<SessionRecord> findByToken(String token) {
+        Map<String, SessionRecord> shard = shardFor(token);
+        SessionRecord session = shard.get(token);
+        if (session == null) {
+            return Optional.empty();
+        }
+        if (session.expiryEpochMillis() <= System.currentTimeMillis()) {
+            remove(shard, session);
+            return Optional.empty();
+        }
+        return Optional.of(session);
+    }
+    
+    @Override
+    public List<SessionRecord> findActiveByUserId(Long userId) {
+        Set<String> tokens = sessionsByUser.get(userId);
+        if (tokens == null) {
+            return List.of();
+        }
+        long now = System.currentTimeMillis();
+        List<SessionRecord> active = new ArrayList<>();
+        for (String token : tokens) {
+            findByToken(token)
+                    .filter(session -> session.isActive(now))
+                    .ifPresent(active::add);
+        }
+        return active;
+    }
+    
+    @Override
+    public void invalidate(String token) {
+        shardFor(token).computeIfPresent(token,
+                (key, session) -> session.toBuilder().status(UserSessionStatus.INVALID).build());
+    }
+    
+    @Override
+    public void expireAll(Collection<String> tokens) {
+        for (String token : tokens) {
+            shardFor(token).computeIfPresent(token,
+                    (key, session) -> session.toBuilder().status(UserSessionStatus.EXPIRED).build());
+        }
+    }
+    
+    @Override
+    public void invalidateCached(Collection<String> tokens) {
+        for (String token : tokens) {
+            invalidate(token);
+        }
+    }
+    
+    @Override
+    public int expireStaleSessions(Long userId) {
+        Set<String> tokens = sessionsByUser.get(userId);
+        if (tokens == null) {
+            return 0;
+        }
+        long now = System.currentTimeMillis();
+        int expired = 0;
+        for (String token : tokens) {
+            Map<String, SessionRecord> shard = shardFor(token);
+            SessionRecord session = shard.get(token);
+            if (session == null) {
+                tokens.remove(token);
+            } else if (session.expiryEpochMillis() <= now) {
+                remove(shard, session);
+                expired++;
+            }
+        }
+        return expired;
+    }
+    
+    private void sweep(Map<String, SessionRecord> shard, long now) {
+        for (SessionRecord session : shard.values()) {
+            if (session.expiryEpochMillis() <= now) {
+                remove(shard, session);
+            }
+        }
+    }
+    
+    private void remove(Map<String, SessionRecord> shard, SessionRecord session) {
+        if (shard.remove(session.getToken(), session)) {
+            sessionsByUser.computeIfPresent(session.getUserId(), (userId, tokens) -> {
+                tokens.remove(session.getToken());
+                return tokens.isEmpty() ? null : tokens;
+            });
+        }
+    }
+    
+    private ConcurrentHashMap<String, SessionRecord> shardFor(String token) {
+        int hash = token.hashCode();
+        return shards[(hash ^ (hash >>> 16)) & shardMask];
+    }
+}
@@ -0,0 +1,77 @@
+package com.giggles.auth.repository.session;
+
+import com.giggles.auth.entity.UserSessionEntity;
+import com.giggles.auth.enums.UserSessionStatus;
+import com.giggles.auth.repository.UserRepository;
+import com.giggles.auth.repository.UserSessionRepository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+// PostgreSQL-backed store. Also used as the audit trail when a cache backend is active.
+// Not a proxied bean: transactions come from the caller or from the repository methods.
+public class JpaSessionStore implements SessionStore {
+    
+    private final UserRepository userRepository;
+    private final UserSessionRepository userSessionRepository;
+    
+    public JpaSessionStore(UserRepository userRepository, UserSessionRepository userSessionRepository) {
+        this.userRepository = userRepository;
+        this.userSessionRepository = userSessionRepository;
+    }
+    
+    @Override
+    public void create(SessionRecord session) {
+        UserSessionEntity entity = new UserSessionEntity();
+        entity.setUser(userRepository.getReferenceById(session.getUserId()));
+        entity.setToken(session.getToken());
+        entity.setExpiry(session.getExpiry());
+        entity.setUserSessionStatus(session.getStatus());
+        entity.setIpAddress(session.getIpAddress());
+        entity.setUserAgent(session.getUserAgent());
+        userSessionRepository.save(entity);
+    }
+    
+    @Override
+    public Optional<SessionRecord> findByToken(String token) {
+        return userSessionRepository.findByToken(token).map(this::toRecord);
+    }
+    
+    @Override
+    public List<SessionRecord> findActiveByUserId(Long userId) {
+        return userSessionRepository.findActiveByUserId(userId, UserSessionStatus.VALID, LocalDateTime.now()).stream()
+                .map(this::toRecord)
+                .toList();
+    }
+    
+    @Override
+    public void invalidate(String token) {
+        userSessionRepository.updateStatusByToken(token, UserSessionStatus.INVALID, LocalDateTime.now());
+    }
+    
+    @Override
+    public void expireAll(Collection<String> tokens) {
+        if (!tokens.isEmpty()) {
+            userSessionRepository.updateStatusByTokens(tokens, UserSessionStatus.EXPIRED, LocalDateTime.now());
+        }
+    }
+    
+    @Override
+    public int expireStaleSessions(Long userId) {
+        return userSessionRepository.invalidateExpiredByUserId(userId, UserSessionStatus.VALID, UserSessionStatus.INVALID,
+                LocalDateTime.now());
+    }
+    
+    private SessionRecord toRecord(UserSessionEntity entity) {
+        return SessionRecord.builder()
+                .token(entity.getToken())
+                .userId(entity.getUser().getId())
+                .expiry(entity.getExpiry())
+                .status(entity.getUserSessionStatus())
+                .ipAddress(entity.getIpAddress())
+                .userAgent(entity.getUserAgent())
+                .build();
+    }
+}
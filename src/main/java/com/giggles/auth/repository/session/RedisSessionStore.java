@@ -0,0 +1,166 @@
+package com.giggles.auth.repository.session;
+
+import com.giggles.auth.enums.UserSessionStatus;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+// Redis-protocol store. Each session is a hash that expires natively at the session expiry,
+// and each user has a sorted set of tokens scored by expiry for per-user listing and cleanup.
+public class RedisSessionStore implements SessionStore {
+    
+    private static final String FIELD_USER_ID = "userId";
+    private static final String FIELD_EXPIRY = "expiry";
+    private static final String FIELD_STATUS = "status";
+    private static final String FIELD_IP_ADDRESS = "ipAddress";
+    private static final String FIELD_USER_AGENT = "userAgent";
+    
+    // Runs atomically, so a key that expires or is deleted meanwhile is never recreated as a partial hash.
+    // The TTL is re-applied from the stored expiry in case anything removed it.
+    private static final String SET_STATUS_SCRIPT =
+            "local expiry = redis.call('HGET', KEYS[1], '" + FIELD_EXPIRY + "') " +
+            "if not expiry then return 0 end " +
+            "redis.call('HSET', KEYS[1], '" + FIELD_STATUS + "', ARGV[1]) " +
+            "redis.call('PEXPIREAT', KEYS[1], expiry) " +
+            "return 1";
+    
+    private final StringRedisTemplate redisTemplate;
+    private final String keyPrefix;
+    
+    public RedisSessionStore(StringRedisTemplate redisTemplate, String keyPrefix) {
+        this.redisTemplate = redisTemplate;
+        this.keyPrefix = keyPrefix;
+    }
+    
+    @Override
+    public void create(SessionRecord session) {
+        String sessionKey = sessionKey(session.getToken());
+        String userKey = userKey(session.getUserId());
+        long expiresAt = session.expiryEpochMillis();
+        
+        Map<String, String> fields = new HashMap<>();
+        fields.put(FIELD_USER_ID, session.getUserId().toString());
+        fields.put(FIELD_EXPIRY, Long.toString(expiresAt));
+        fields.put(FIELD_STATUS, session.getStatus().name());
+        if (session.getIpAddress() != null) {
+            fields.put(FIELD_IP_ADDRESS, session.getIpAddress());
+        }
+        if (session.getUserAgent() != null) {
+            fields.put(FIELD_USER_AGENT, session.getUserAgent());
+        }
+        
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection commands = (StringRedisConnection) connection;
+            commands.hMSet(sessionKey, fields);
+            commands.pExpireAt(sessionKey, expiresAt);
+            commands.zAdd(userKey, expiresAt, session.getToken());
+            // Sessions share one lifetime, so the newest session always expires last
+            commands.pExpireAt(userKey, expiresAt);
+            return null;
+        });
+    }
+    
+    @Override
+    public Optional<SessionRecord> findByToken(String token) {
+        Map<Object, Object> fields = redisTemplate.opsForHash().entries(sessionKey(token));
+        if (fields.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(toRecord(token, fields));
+    }
+    
+    @Override
+    public List<SessionRecord> findActiveByUserId(Long userId) {
+        long now = System.currentTimeMillis();
+        Set<String> tokens = redisTemplate.opsForZSet().rangeByScore(userKey(userId), now, Double.POSITIVE_INFINITY);
+        if (tokens == null || tokens.isEmpty()) {
+            return List.of();
+        }
+        List<String> orderedTokens = new ArrayList<>(tokens);
+        List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection commands = (StringRedisConnection) connection;
+            orderedTokens.forEach(token -> commands.hGetAll(sessionKey(token)));
+            return null;
+        });
+        
+        List<SessionRecord> active = new ArrayList<>();
+        for (int i = 0; i < orderedTokens.size(); i++) {
+            @SuppressWarnings("unchecked")
+            Map<Object, Object> fields = (Map<Object, Object>) results.get(i);
+            if (fields != null && !fields.isEmpty()) {
+                SessionRecord session = toRecord(orderedTokens.get(i), fields);
+                if (session.isActive(now)) {
+                    active.add(session);
+                }
+            }
+        }
+        return active;
+    }
+    
+    @Override
+    public void invalidate(String token) {
+        setStatus(List.of(token), UserSessionStatus.INVALID);
+    }
+    
+    @Override
+    public void expireAll(Collection<String> tokens) {
+        setStatus(tokens, UserSessionStatus.EXPIRED);
+    }
+    
+    @Override
+    public void invalidateCached(Collection<String> tokens) {
+        setStatus(tokens, UserSessionStatus.INVALID);
+    }
+    
+    @Override
+    public int expireStaleSessions(Long userId) {
+        Long removed = redisTemplate.opsForZSet().removeRangeByScore(userKey(userId), 0, System.currentTimeMillis());
+        return removed == null ? 0 : removed.intValue();
+    }
+    
+    // One script call per key (keys of a bulk revoke may live on different cluster slots), pipelined
+    private void setStatus(Collection<String> tokens, UserSessionStatus status) {
+        if (tokens.isEmpty()) {
+            return;
+        }
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection commands = (StringRedisConnection) connection;
+            for (String token : tokens) {
+                commands.eval(SET_STATUS_SCRIPT, ReturnType.INTEGER, 1, sessionKey(token), status.name());
+            }
+            return null;
+        });
+    }
+    
+    private SessionRecord toRecord(String token, Map<Object, Object> fields) {
+        long expiresAt = Long.parseLong((String) fields.get(FIELD_EXPIRY));
+        return SessionRecord.builder()
+                .token(token)
+                .userId(Long.valueOf((String) fields.get(FIELD_USER_ID)))
+                .expiry(LocalDateTime.ofInstant(Instant.ofEpochMilli(expiresAt), ZoneId.systemDefault()))
+                .status(UserSessionStatus.valueOf((String) fields.get(FIELD_STATUS)))
+                .ipAddress((String) fields.get(FIELD_IP_ADDRESS))
+                .userAgent((String) fields.get(FIELD_USER_AGENT))
+                .build();
+    }
+    
+    private String sessionKey(String token) {
+        return keyPrefix + "session:" + token;
+    }
+    
+    private String userKey(Long userId) {
+        return keyPrefix + "user-sessions:" + userId;
+    }
+}
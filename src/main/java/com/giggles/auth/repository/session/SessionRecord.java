@@ -0,0 +1,32 @@
+package com.giggles.auth.repository.session;
+
+import com.giggles.auth.enums.UserSessionStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class SessionRecord {
+    
+    private String token;
+    private Long userId;
+    private LocalDateTime expiry;
+    private UserSessionStatus status;
+    private String ipAddress;
+    private String userAgent;
+    
+    public long expiryEpochMillis() {
+        return expiry.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+    
+    public boolean isActive(long nowEpochMillis) {
+        return status == UserSessionStatus.VALID && expiryEpochMillis() > nowEpochMillis;
+    }
+}
@@ -0,0 +1,33 @@
+package com.giggles.auth.repository.session;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface SessionStore {
+    
+    void create(SessionRecord session);
+    
+    Optional<SessionRecord> findByToken(String token);
+    
+    List<SessionRecord> findActiveByUserId(Long userId);
+    
+    void invalidate(String token);
+    
+    // Marks the given sessions EXPIRED, e.g. when they have been idle too long
+    void expireAll(Collection<String> tokens);
+    
+    // Drops cached copies of sessions that were already invalidated in the database;
+    // stores that read from the database have nothing to do
+    default void invalidateCached(Collection<String> tokens) {
+    }
+    
+    // Marks or drops the user's sessions that are past expiry and returns how many were affected
+    int expireStaleSessions(Long userId);
+    
+    default boolean isValid(String token) {
+        return findByToken(token)
+                .map(session -> session.isActive(System.currentTimeMillis()))
+                .orElse(false);
+    }
+}
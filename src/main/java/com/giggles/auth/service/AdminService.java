@@ -0,0 +1,301 @@
+package com.giggles.auth.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.giggles.auth.dto.request.AdminSessionFilter;
+import com.giggles.auth.dto.request.AdminUserFilter;
+import com.giggles.auth.dto.response.RebalanceResponse;
+import com.giggles.auth.enums.UserSessionStatus;
+import com.giggles.auth.exception.CommonException;
+import com.giggles.auth.exception.ErrorCode;
+import com.giggles.auth.repository.session.SessionStore;
+import com.giggles.auth.sharding.ShardRebalancer;
+import com.giggles.auth.sharding.ShardRouter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.HttpStatus;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+// Admin listing and bulk revocation over users and sessions. Listings page by keyset on id and
+// stream rows straight from the result set into the response; revocation runs as chunked
+// set-based updates so no single statement holds row locks for long.
+@Service
+@Slf4j
+public class AdminService {
+    
+    private static final String USER_QUERY =
+            "SELECT id, name, email, phone_number, role, is_locked, login_attempts, deleted, created_at " +
+            "FROM users WHERE id > ?%s ORDER BY id LIMIT ?";
+    
+    private static final String SESSION_QUERY =
+            "SELECT id, user_id, status, expiry, ip_address, user_agent, created_at, last_seen_at " +
+            "FROM user_sessions WHERE id > ?%s ORDER BY id LIMIT ?";
+    
+    private static final String REVOKE_SESSIONS_SQL =
+            "UPDATE user_sessions SET status = 'INVALID', updated_at = ? WHERE id IN (" +
+            "SELECT id FROM user_sessions WHERE status = 'VALID' AND id > ?%s ORDER BY id LIMIT ?) " +
+            "RETURNING id, token";
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final SessionStore sessionStore;
+    private final ShardRouter shardRouter;
+    private final ObjectProvider<ShardRebalancer> shardRebalancer;
+    
+    @Value("${admin.page.default-size:100}")
+    private int defaultPageSize;
+    
+    @Value("${admin.page.max-size:1000}")
+    private int maxPageSize;
+    
+    @Value("${admin.stream.fetch-size:500}")
+    private int fetchSize;
+    
+    @Value("${admin.revoke.chunk-size:1000}")
+    private int revokeChunkSize;
+    
+    @Autowired
+    public AdminService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                        ObjectMapper objectMapper, SessionStore sessionStore, ShardRouter shardRouter,
+                        ObjectProvider<ShardRebalancer> shardRebalancer) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.objectMapper = objectMapper;
+        this.sessionStore = sessionStore;
+        this.shardRouter = shardRouter;
+        this.shardRebalancer = shardRebalancer;
+    }
+    
+    public StreamingResponseBody streamUsers(AdminUserFilter filter) {
+        Conditions conditions = new Conditions();
+        conditions.add("role = ?", filter.getRole() == null ? null : filter.getRole().name());
+        conditions.add("COALESCE(is_locked, false) = ?", filter.getLocked());
+        conditions.add("deleted = ?", filter.getDeleted());
+        
+        return stream(String.format(USER_QUERY, conditions.sql()), conditions, listingShard(filter.getShard()),
+                filter.getAfter(), filter.getLimit(), (generator, rs) -> {
+                    generator.writeStringField("name", rs.getString("name"));
+                    generator.writeStringField("email", rs.getString("email"));
+                    generator.writeStringField("phoneNumber", rs.getString("phone_number"));
+                    generator.writeStringField("role", rs.getString("role"));
+                    generator.writeBooleanField("locked", rs.getBoolean("is_locked"));
+                    generator.writeNumberField("loginAttempts", rs.getInt("login_attempts"));
+                    generator.writeBooleanField("deleted", rs.getBoolean("deleted"));
+                    writeTimestamp(generator, "createdAt", rs.getTimestamp("created_at"));
+                });
+    }
+    
+    public StreamingResponseBody streamSessions(AdminSessionFilter filter) {
+        Conditions conditions = sessionConditions(filter);
+        conditions.add("status = ?", filter.getStatus() == null ? null : filter.getStatus().name());
+        
+        return stream(String.format(SESSION_QUERY, conditions.sql()), conditions, listingShard(filter.getShard()),
+                filter.getAfter(), filter.getLimit(), (generator, rs) -> {
+                    generator.writeNumberField("userId", rs.getLong("user_id"));
+                    generator.writeStringField("status", rs.getString("status"));
+                    writeTimestamp(generator, "expiry", rs.getTimestamp("expiry"));
+                    generator.writeStringField("ipAddress", rs.getString("ip_address"));
+                    generator.writeStringField("userAgent", rs.getString("user_agent"));
+                    writeTimestamp(generator, "createdAt", rs.getTimestamp("created_at"));
+                    writeTimestamp(generator, "lastSeenAt", rs.getTimestamp("last_seen_at"));
+                });
+    }
+    
+    // Revokes every valid session matching the filter, chunk by chunk in id order, and returns how many were revoked
+    public int revokeSessions(AdminSessionFilter filter) {
+        if (filter.getStatus() != null && filter.getStatus() != UserSessionStatus.VALID) {
+            return 0;
+        }
+        Conditions conditions = sessionConditions(filter);
+        if (conditions.isEmpty()) {
+            throw new CommonException(HttpStatus.SC_BAD_REQUEST, ErrorCode.INVALID_FILTER,
+                    "At least one filter is required to revoke sessions");
+        }
+        
+        String sql = String.format(REVOKE_SESSIONS_SQL, conditions.sql());
+        long after = filter.getAfter() == null ? 0L : filter.getAfter();
+        int revoked;
+        if (filter.getShard() != null) {
+            revoked = shardRouter.callOn(listingShard(filter.getShard()), () -> revokeSessions(sql, conditions, after));
+        } else {
+            int[] total = {0};
+            shardRouter.forEachShard(() -> total[0] += revokeSessions(sql, conditions, after));
+            revoked = total[0];
+        }
+        log.info("Revoked {} sessions matching {}", revoked, filter);
+        return revoked;
+    }
+    
+    private int revokeSessions(String sql, Conditions conditions, long after) {
+        int revoked = 0;
+        while (true) {
+            List<Object> args = new ArrayList<>();
+            args.add(Timestamp.valueOf(LocalDateTime.now()));
+            args.add(after);
+            args.addAll(conditions.args);
+            args.add(revokeChunkSize);
+            
+            List<String> tokens = new ArrayList<>();
+            long[] maxId = {after};
+            jdbcTemplate.query(sql, (RowCallbackHandler) rs -> {
+                maxId[0] = Math.max(maxId[0], rs.getLong("id"));
+                tokens.add(rs.getString("token"));
+            }, args.toArray());
+            
+            if (tokens.isEmpty()) {
+                break;
+            }
+            sessionStore.invalidateCached(tokens);
+            revoked += tokens.size();
+            after = maxId[0];
+            if (tokens.size() < revokeChunkSize) {
+                break;
+            }
+        }
+        return revoked;
+    }
+    
+    // Runs a full rebalancing pass synchronously; the service stays online while users are moved
+    public RebalanceResponse rebalanceShards() {
+        ShardRebalancer rebalancer = shardRebalancer.getIfAvailable();
+        if (rebalancer == null) {
+            throw new CommonException(HttpStatus.SC_BAD_REQUEST, ErrorCode.SHARDING_NOT_ENABLED,
+                    "Sharding is not enabled");
+        }
+        RebalanceResponse response = rebalancer.rebalance();
+        if (response == null) {
+            throw new CommonException(HttpStatus.SC_CONFLICT, ErrorCode.REBALANCE_IN_PROGRESS,
+                    "A rebalance is already running");
+        }
+        return response;
+    }
+    
+    // Listings page through one shard at a time; null (no sharding) means the only database
+    private Integer listingShard(Integer shard) {
+        if (!shardRouter.isEnabled()) {
+            return null;
+        }
+        if (shard == null || !shardRouter.getShardIds().contains(shard)) {
+            throw new CommonException(HttpStatus.SC_BAD_REQUEST, ErrorCode.INVALID_FILTER,
+                    "shard must be one of " + shardRouter.getShardIds());
+        }
+        return shard;
+    }
+    
+    private Conditions sessionConditions(AdminSessionFilter filter) {
+        Conditions conditions = new Conditions();
+        conditions.add("user_id = ?", filter.getUserId());
+        conditions.add("expiry >= ?", filter.getExpiresAfter() == null ? null : Timestamp.valueOf(filter.getExpiresAfter()));
+        conditions.add("expiry < ?", filter.getExpiresBefore() == null ? null : Timestamp.valueOf(filter.getExpiresBefore()));
+        conditions.add("ip_address = ?", filter.getIpAddress());
+        conditions.add("user_agent LIKE ?", filter.getUserAgent() == null ? null : escapeLike(filter.getUserAgent()) + "%");
+        return conditions;
+    }
+    
+    private StreamingResponseBody stream(String sql, Conditions conditions, Integer shard, Long after, Integer limit,
+                                         RowWriter rowWriter) {
+        int pageSize = limit == null || limit <= 0 ? defaultPageSize : Math.min(limit, maxPageSize);
+        List<Object> args = new ArrayList<>();
+        args.add(after == null ? 0L : after);
+        args.addAll(conditions.args);
+        args.add(pageSize);
+        
+        return outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                long[] lastId = {0L};
+                int[] count = {0};
+                generator.writeStartObject();
+                generator.writeArrayFieldStart("items");
+                // Postgres only honours the fetch size inside a transaction, so rows are pulled in batches
+                // and written out as they arrive instead of the whole page being buffered. The body is written on
+                // an async thread, so the shard is selected here rather than by the request thread
+                shardRouter.runOn(shard, () -> readOnlyTransactionTemplate.executeWithoutResult(
+                        status -> jdbcTemplate.query(connection -> {
+                    PreparedStatement statement = connection.prepareStatement(sql);
+                    statement.setFetchSize(fetchSize);
+                    for (int i = 0; i < args.size(); i++) {
+                        statement.setObject(i + 1, args.get(i));
+                    }
+                    return statement;
+                }, (RowCallbackHandler) rs -> {
+                    lastId[0] = rs.getLong("id");
+                    count[0]++;
+                    try {
+                        generator.writeStartObject();
+                        generator.writeNumberField("id", lastId[0]);
+                        rowWriter.write(generator, rs);
+                        generator.writeEndObject();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                })));
+                generator.writeEndArray();
+                if (count[0] == pageSize) {
+                    generator.writeNumberField("nextCursor", lastId[0]);
+                } else {
+                    generator.writeNullField("nextCursor");
+                }
+                generator.writeEndObject();
+            }
+        };
+    }
+    
+    private static void writeTimestamp(JsonGenerator generator, String field, Timestamp value) throws IOException {
+        if (value == null) {
+            generator.writeNullField(field);
+        } else {
+            generator.writeStringField(field, value.toLocalDateTime().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+        }
+    }
+    
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+    
+    @FunctionalInterface
+    private interface RowWriter {
+        void write(JsonGenerator generator, ResultSet rs) throws IOException, SQLException;
+    }
+    
+    // AND-ed WHERE clauses with their bind values; null values are skipped
+    private static final class Conditions {
+        
+        private final StringBuilder sql = new StringBuilder();
+        private final List<Object> args = new ArrayList<>();
+        
+        void add(String clause, Object value) {
+            if (value != null) {
+                sql.append(" AND ").append(clause);
+                args.add(value);
+            }
+        }
+        
+        boolean isEmpty() {
+            return args.isEmpty();
+        }
+        
+        String sql() {
+            return sql.toString();
+        }
+    }
+}
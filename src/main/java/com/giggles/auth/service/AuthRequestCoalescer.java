@@ -0,0 +1,149 @@
+package com.giggles.auth.service;
+
+import com.giggles.auth.dto.request.SignUpOrLoginRequest;
+import com.giggles.auth.dto.response.AuthResponse;
+import com.giggles.auth.exception.AuthenticationException;
+import com.giggles.auth.exception.ErrorCode;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.HttpStatus;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+// In-process single-flight for client retries: concurrent signup/login calls carrying the same Idempotency-Key
+// header and body share one execution, and their response is replayed for a short window. Requests without
+// the header always run on their own, since every client must get its own session.
+@Component
+@Slf4j
+public class AuthRequestCoalescer {
+    
+    private final ConcurrentHashMap<String, CompletableFuture<AuthResponse>> inFlight = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, CompletedResponse> completed = new ConcurrentHashMap<>();
+    
+    @Value("${auth.idempotency.ttl-ms:30000}")
+    private long idempotencyTtlMs;
+    
+    @Value("${auth.idempotency.max-entries:10000}")
+    private int idempotencyMaxEntries;
+    
+    public AuthResponse execute(SignUpOrLoginRequest request, String idempotencyKey, Supplier<AuthResponse> action) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return action.get();
+        }
+        String fingerprint = fingerprint(request);
+        AuthResponse replayed = replay(idempotencyKey, fingerprint);
+        if (replayed != null) {
+            log.debug("Replaying cached response for Idempotency-Key");
+            return replayed;
+        }
+        
+        // The fingerprint covers every field exactly as signUp/login see it, so a key reused for a different
+        // request doesn't join the first one's flight
+        String flightKey = idempotencyKey + '\0' + fingerprint;
+        CompletableFuture<AuthResponse> flight = new CompletableFuture<>();
+        CompletableFuture<AuthResponse> existing = inFlight.putIfAbsent(flightKey, flight);
+        if (existing != null) {
+            log.debug("Joining in-flight signup/login request with the same Idempotency-Key");
+            return await(existing);
+        }
+        
+        try {
+            AuthResponse response = action.get();
+            remember(idempotencyKey, fingerprint, response);
+            flight.complete(response);
+            return response;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(flightKey, flight);
+        }
+    }
+    
+    private AuthResponse replay(String idempotencyKey, String fingerprint) {
+        CompletedResponse cached = completed.get(idempotencyKey);
+        if (cached == null) {
+            return null;
+        }
+        if (cached.isExpired(System.currentTimeMillis())) {
+            completed.remove(idempotencyKey, cached);
+            return null;
+        }
+        if (!cached.fingerprint().equals(fingerprint)) {
+            throw new AuthenticationException(
+                    HttpStatus.SC_UNPROCESSABLE_ENTITY,
+                    ErrorCode.IDEMPOTENCY_KEY_REUSED,
+                    "Idempotency-Key was already used for a different request"
+            );
+        }
+        return cached.response();
+    }
+    
+    private void remember(String idempotencyKey, String fingerprint, AuthResponse response) {
+        long now = System.currentTimeMillis();
+        if (completed.size() >= idempotencyMaxEntries) {
+            completed.values().removeIf(entry -> entry.isExpired(now));
+            if (completed.size() >= idempotencyMaxEntries) {
+                log.warn("Idempotency cache is full ({} entries). Response will not be cached.", completed.size());
+                return;
+            }
+        }
+        completed.put(idempotencyKey, new CompletedResponse(fingerprint, response, now + idempotencyTtlMs));
+    }
+    
+    private AuthResponse await(CompletableFuture<AuthResponse> flight) {
+        try {
+            return flight.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+    
+    private String fingerprint(SignUpOrLoginRequest request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            update(digest, String.valueOf(request.getIsSignup()));
+            update(digest, request.getEmail());
+            update(digest, request.getPhoneNumber());
+            update(digest, request.getName());
+            update(digest, request.getAddress());
+            update(digest, request.getPassword());
+            update(digest, request.getFirebaseIdToken());
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+    
+    private void update(MessageDigest digest, String value) {
+        // Presence byte keeps null and "" distinct
+        digest.update((byte) (value == null ? 0 : 1));
+        if (value != null) {
+            digest.update(value.getBytes(StandardCharsets.UTF_8));
+        }
+        // Separator keeps ("ab", "c") and ("a", "bc") distinct
+        digest.update((byte) 0);
+    }
+    
+    private record CompletedResponse(String fingerprint, AuthResponse response, long expiresAt) {
+        
+        boolean isExpired(long now) {
+            return now >= expiresAt;
+        }
+    }
+}
@@ -4,51 +4,130 @@ import com.giggles.auth.dto.request.SignUpOrLoginRequest;
 import com.giggles.auth.dto.response.AuthResponse;
 import com.giggles.auth.dto.response.UserDTO;
 import com.giggles.auth.entity.UserEntity;
-import com.giggles.auth.entity.UserSessionEntity;
 import com.giggles.auth.enums.UserRole;
 import com.giggles.auth.enums.UserSessionStatus;
 import com.giggles.auth.exception.AuthenticationException;
 import com.giggles.auth.exception.ErrorCode;
+import com.giggles.auth.jfr.AuthEvents;
 import com.giggles.auth.repository.UserRepository;
-import com.giggles.auth.repository.UserSessionRepository;
+import com.giggles.auth.repository.session.SessionRecord;
+import com.giggles.auth.repository.session.SessionStore;
+import com.giggles.auth.sharding.ShardRouter;
+import com.giggles.auth.sharding.UserDirectory;
+import com.giggles.auth.util.IdentifierUtil;
 import com.giggles.auth.util.JwtUtil;
 import com.giggles.auth.util.PasswordUtil;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.http.HttpStatus;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
 
 @Service
 @Slf4j
 public class AuthenticationService {
     
+    private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    
     private final UserRepository userRepository;
-    private final UserSessionRepository userSessionRepository;
+    private final SessionStore sessionStore;
     private final JwtUtil jwtUtil;
     private final PasswordUtil passwordUtil;
+    private final AuthRequestCoalescer authRequestCoalescer;
+    private final TransactionTemplate transactionTemplate;
+    private final OutboxService outboxService;
+    private final ObjectProvider<FirebaseService> firebaseService;
+    private final ShardRouter shardRouter;
+    private final UserDirectory userDirectory;
     
     @Autowired
-    public AuthenticationService(UserRepository userRepository, UserSessionRepository userSessionRepository, JwtUtil jwtUtil,
-                                 PasswordUtil passwordUtil) {
+    public AuthenticationService(UserRepository userRepository, SessionStore sessionStore, JwtUtil jwtUtil,
+                                 PasswordUtil passwordUtil, AuthRequestCoalescer authRequestCoalescer,
+                                 TransactionTemplate transactionTemplate, OutboxService outboxService,
+                                 ObjectProvider<FirebaseService> firebaseService, ShardRouter shardRouter,
+                                 UserDirectory userDirectory) {
         this.userRepository = userRepository;
-        this.userSessionRepository = userSessionRepository;
+        this.sessionStore = sessionStore;
         this.jwtUtil = jwtUtil;
         this.passwordUtil = passwordUtil;
+        this.authRequestCoalescer = authRequestCoalescer;
+        this.transactionTemplate = transactionTemplate;
+        this.outboxService = outboxService;
+        this.firebaseService = firebaseService;
+        this.shardRouter = shardRouter;
+        this.userDirectory = userDirectory;
     }
     
-    @Transactional
+    // Duplicates are coalesced before a transaction is opened so that waiters don't hold a connection
     public AuthResponse signUpOrLogin(SignUpOrLoginRequest request, HttpServletRequest httpRequest) {
         log.info("Processing signup/login request. isSignup: {}", request.getIsSignup());
         
-        if (Boolean.TRUE.equals(request.getIsSignup())) {
-            return signUp(request, httpRequest);
-        } else {
-            return login(request, httpRequest);
+        return authRequestCoalescer.execute(request, httpRequest.getHeader(IDEMPOTENCY_KEY_HEADER),
+                () -> AuthEvents.request(Boolean.TRUE.equals(request.getIsSignup()) ? "signup" : "login",
+                        () -> shardRouter.isEnabled()
+                                ? executeOnShard(request, httpRequest)
+                                : executeInTransaction(request, httpRequest)));
+    }
+    
+    private AuthResponse executeInTransaction(SignUpOrLoginRequest request, HttpServletRequest httpRequest) {
+        return transactionTemplate.execute(status -> {
+            if (Boolean.TRUE.equals(request.getIsSignup())) {
+                return signUp(request, httpRequest);
+            } else {
+                return login(request, httpRequest);
+            }
+        });
+    }
+    
+    // The shard is chosen before the transaction opens, since the transaction's connection is bound to it
+    private AuthResponse executeOnShard(SignUpOrLoginRequest request, HttpServletRequest httpRequest) {
+        String homeIdentifier = IdentifierUtil.primaryIdentifier(request.getEmail(), request.getPhoneNumber());
+        if (homeIdentifier == null) {
+            // Invalid request; let the usual validation reject it
+            return executeInTransaction(request, httpRequest);
+        }
+        
+        if (!Boolean.TRUE.equals(request.getIsSignup())) {
+            Integer shard = resolveLoginShard(request).orElse(shardRouter.shardFor(homeIdentifier));
+            return shardRouter.callOn(shard, () -> executeInTransaction(request, httpRequest));
+        }
+        
+        int homeShard = shardRouter.shardFor(homeIdentifier);
+        List<String> identifiers = IdentifierUtil.identifiers(request.getEmail(), request.getPhoneNumber());
+        UserDirectory.Claim claim = AuthEvents.stage("directory.claim", null, () -> userDirectory.claim(identifiers, homeShard));
+        AuthResponse response;
+        try {
+            response = shardRouter.callOn(homeShard, () -> executeInTransaction(request, httpRequest));
+        } catch (RuntimeException e) {
+            userDirectory.release(claim);
+            throw e;
+        }
+        try {
+            AuthEvents.stage("directory.complete", response.getUser().getId(),
+                    () -> userDirectory.complete(claim, response.getUser().getId()));
+        } catch (RuntimeException e) {
+            // The user is committed, so the signup succeeded; the next lookup of an open claim completes it
+            log.warn("Failed to complete directory claim for user {}", response.getUser().getId(), e);
         }
+        return response;
+    }
+    
+    // Login looks up by email first and falls back to phone number, so the directory is consulted in that order
+    private Optional<Integer> resolveLoginShard(SignUpOrLoginRequest request) {
+        for (String identifier : IdentifierUtil.identifiers(request.getEmail(), request.getPhoneNumber())) {
+            Optional<UserDirectory.Location> location =
+                    AuthEvents.stage("directory.resolve", null, () -> userDirectory.resolve(identifier));
+            if (location.isPresent()) {
+                return Optional.of(location.get().shardId());
+            }
+        }
+        return Optional.empty();
     }
     
     private AuthResponse signUp(SignUpOrLoginRequest request, HttpServletRequest httpRequest) {
@@ -62,14 +141,15 @@ public class AuthenticationService {
         String existingField = null;
         
         if (request.getEmail() != null && !request.getEmail().trim().isEmpty()) {
-            if (userRepository.existsByEmailAndDeletedFalse(request.getEmail())) {
+            if (AuthEvents.stage("user.existsByEmail", null, () -> userRepository.existsActiveByEmail(request.getEmail()))) {
                 userExists = true;
                 existingField = "email";
             }
         }
         
         if (!userExists && request.getPhoneNumber() != null && !request.getPhoneNumber().trim().isEmpty()) {
-            if (userRepository.existsByPhoneNumberAndDeletedFalse(request.getPhoneNumber())) {
+            if (AuthEvents.stage("user.existsByPhoneNumber", null,
+                    () -> userRepository.existsActiveByPhoneNumber(request.getPhoneNumber()))) {
                 userExists = true;
                 existingField = "phone number";
             }
@@ -89,38 +169,30 @@ public class AuthenticationService {
         user.setEmail(request.getEmail());
         user.setPhoneNumber(request.getPhoneNumber());
         user.setAddress(request.getAddress());
-        user.setPassword(passwordUtil.encodePassword(request.getPassword()));
+        user.setPassword(AuthEvents.stage("bcrypt.encode", null, () -> passwordUtil.encodePassword(request.getPassword())));
         user.setRole(UserRole.USER); // Default role is USER
         // UserSessionType is MULTI by default in entity
         
-        user = userRepository.save(user);
+        UserEntity savedUser = AuthEvents.stage("user.save", null, () -> userRepository.save(user));
+        AuthEvents.stage("outbox.record", savedUser.getId(), () -> outboxService.recordSignup(savedUser));
         
         // Generate JWT token
-        String token = jwtUtil.generateToken(user.getId(), 
-                user.getPhoneNumber() != null ? user.getPhoneNumber() : user.getEmail(), 
-                user.getRole().name());
+        String token = generateToken(savedUser);
         LocalDateTime expiry = jwtUtil.getExpiryDateTime();
         
         // Create session
-        UserSessionEntity session = new UserSessionEntity();
-        session.setUser(user);
-        session.setToken(token);
-        session.setExpiry(expiry);
-        session.setUserSessionStatus(UserSessionStatus.VALID);
-        session.setIpAddress(getClientIpAddress(httpRequest));
-        session.setUserAgent(httpRequest.getHeader("User-Agent"));
-        userSessionRepository.save(session);
+        createSession(savedUser, token, expiry, httpRequest);
         
-        log.info("User account created successfully with ID: {}", user.getId());
+        log.info("User account created successfully with ID: {}", savedUser.getId());
         
         // Build response
         UserDTO userDTO = UserDTO.builder()
-                .id(user.getId())
-                .name(user.getName())
-                .email(user.getEmail())
-                .phoneNumber(user.getPhoneNumber())
-                .address(user.getAddress())
-                .role(user.getRole().name())
+                .id(savedUser.getId())
+                .name(savedUser.getName())
+                .email(savedUser.getEmail())
+                .phoneNumber(savedUser.getPhoneNumber())
+                .address(savedUser.getAddress())
+                .role(savedUser.getRole().name())
                 .build();
         
         return AuthResponse.builder()
@@ -136,11 +208,13 @@ public class AuthenticationService {
         UserEntity user = null;
         
         if (request.getEmail() != null && !request.getEmail().trim().isEmpty()) {
-            user = userRepository.findByEmailAndDeletedFalse(request.getEmail()).orElse(null);
+            user = AuthEvents.stage("user.findByEmail", null,
+                    () -> userRepository.findActiveByEmail(request.getEmail())).orElse(null);
         }
         
         if (user == null && request.getPhoneNumber() != null && !request.getPhoneNumber().trim().isEmpty()) {
-            user = userRepository.findByPhoneNumberAndDeletedFalse(request.getPhoneNumber()).orElse(null);
+            user = AuthEvents.stage("user.findByPhoneNumber", null,
+                    () -> userRepository.findActiveByPhoneNumber(request.getPhoneNumber())).orElse(null);
         }
         
         if (user == null) {
@@ -150,10 +224,14 @@ public class AuthenticationService {
                     "User not found with provided email or phone number"
             );
         }
-        if (!passwordUtil.matches(request.getPassword(), user.getPassword())) {
+        UserEntity foundUser = user;
+        if (isOtpLogin(request)) {
+            AuthEvents.stage("firebase.verify", user.getId(), () -> verifyPhoneOtp(request, foundUser));
+        } else if (!AuthEvents.stage("bcrypt.matches", user.getId(),
+                () -> passwordUtil.matches(request.getPassword(), foundUser.getPassword()))) {
             // Increment login attempts
             user.setLoginAttempts(user.getLoginAttempts() + 1);
-            userRepository.save(user);
+            AuthEvents.stage("user.save", user.getId(), () -> userRepository.save(foundUser));
             
             throw new AuthenticationException(
                     HttpStatus.SC_UNAUTHORIZED,
@@ -169,21 +247,13 @@ public class AuthenticationService {
             );
         }
         markExpiredSessionsAsInvalid(user);
-        String token = jwtUtil.generateToken(user.getId(), 
-                user.getPhoneNumber() != null ? user.getPhoneNumber() : user.getEmail(), 
-                user.getRole().name());
+        String token = generateToken(user);
         LocalDateTime expiry = jwtUtil.getExpiryDateTime();
-        UserSessionEntity session = new UserSessionEntity();
-        session.setUser(user);
-        session.setToken(token);
-        session.setExpiry(expiry);
-        session.setUserSessionStatus(UserSessionStatus.VALID);
-        session.setIpAddress(getClientIpAddress(httpRequest));
-        session.setUserAgent(httpRequest.getHeader("User-Agent"));
-        userSessionRepository.save(session);
+        createSession(user, token, expiry, httpRequest);
         user.setLoginAttempts(0);
         user.setIsLocked(false);
-        userRepository.save(user);
+        AuthEvents.stage("user.save", user.getId(), () -> userRepository.save(foundUser));
+        AuthEvents.stage("outbox.record", user.getId(), () -> outboxService.recordLogin(foundUser));
         
         log.info("User logged in successfully with ID: {}", user.getId());
         UserDTO userDTO = UserDTO.builder()
@@ -238,6 +308,17 @@ public class AuthenticationService {
             );
         }
         
+        if (isOtpLogin(request)) {
+            if (request.getPhoneNumber() == null || request.getPhoneNumber().trim().isEmpty()) {
+                throw new AuthenticationException(
+                        HttpStatus.SC_BAD_REQUEST,
+                        ErrorCode.INVALID_PHONE_VERIFICATION,
+                        "Phone number is required for OTP login"
+                );
+            }
+            return;
+        }
+        
         if (request.getPassword() == null || request.getPassword().trim().isEmpty()) {
             throw new AuthenticationException(
                     HttpStatus.SC_BAD_REQUEST,
@@ -247,15 +328,54 @@ public class AuthenticationService {
         }
     }
     
+    private boolean isOtpLogin(SignUpOrLoginRequest request) {
+        return request.getFirebaseIdToken() != null && !request.getFirebaseIdToken().trim().isEmpty();
+    }
+    
+    private void verifyPhoneOtp(SignUpOrLoginRequest request, UserEntity user) {
+        FirebaseService firebase = firebaseService.getIfAvailable();
+        if (firebase == null) {
+            throw new AuthenticationException(
+                    HttpStatus.SC_BAD_REQUEST,
+                    ErrorCode.INVALID_PHONE_VERIFICATION,
+                    "Phone OTP login is not enabled"
+            );
+        }
+        // The user must have been looked up by this phone number, not by an email in the same request
+        if (!firebase.validatePhoneNumber(request.getFirebaseIdToken(), request.getPhoneNumber())
+                || !request.getPhoneNumber().equals(user.getPhoneNumber())) {
+            throw new AuthenticationException(
+                    HttpStatus.SC_UNAUTHORIZED,
+                    ErrorCode.INVALID_PHONE_VERIFICATION,
+                    "Phone verification failed"
+            );
+        }
+    }
+    
+    private String generateToken(UserEntity user) {
+        return AuthEvents.stage("jwt.generate", user.getId(), () -> jwtUtil.generateToken(user.getId(),
+                user.getPhoneNumber() != null ? user.getPhoneNumber() : user.getEmail(),
+                user.getRole().name(), shardRouter.currentShard()));
+    }
+    
     private void markExpiredSessionsAsInvalid(UserEntity user) {
-        LocalDateTime now = LocalDateTime.now();
-        user.getSessions().stream()
-                .filter(session -> session.getUserSessionStatus().equals(UserSessionStatus.VALID))
-                .filter(session -> session.getExpiry().isBefore(now))
-                .forEach(session -> {
-                    session.setUserSessionStatus(UserSessionStatus.INVALID);
-                    userSessionRepository.save(session);
-                });
+        int expired = AuthEvents.stage("session.expireStale", user.getId(),
+                () -> sessionStore.expireStaleSessions(user.getId()));
+        if (expired > 0) {
+            log.debug("Expired {} stale sessions for user ID: {}", expired, user.getId());
+        }
+    }
+    
+    private void createSession(UserEntity user, String token, LocalDateTime expiry, HttpServletRequest httpRequest) {
+        SessionRecord session = SessionRecord.builder()
+                .token(token)
+                .userId(user.getId())
+                .expiry(expiry)
+                .status(UserSessionStatus.VALID)
+                .ipAddress(getClientIpAddress(httpRequest))
+                .userAgent(httpRequest.getHeader("User-Agent"))
+                .build();
+        AuthEvents.stage("session.create", user.getId(), () -> sessionStore.create(session));
     }
     
     private String getClientIpAddress(HttpServletRequest request) {
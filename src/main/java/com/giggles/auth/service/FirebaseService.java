@@ -1,23 +1,91 @@
 package com.giggles.auth.service;
 
-import com.google.firebase.auth.FirebaseAuth;
-import com.google.firebase.auth.FirebaseAuthException;
-import com.google.firebase.auth.FirebaseToken;
+import com.giggles.auth.util.FirebasePublicKeyCache;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.LocatorAdapter;
+import io.jsonwebtoken.security.SignatureException;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
 
+import java.security.Key;
+import java.security.PublicKey;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
-// Firebase verification removed - service kept for future use
-// @Service
+@Service
+@ConditionalOnProperty(name = "firebase.enabled", havingValue = "true")
 @Slf4j
 public class FirebaseService {
     
-    public FirebaseToken verifyIdToken(String idToken) throws FirebaseAuthException {
+    private static final String ISSUER_PREFIX = "https://securetoken.google.com/";
+    
+    private final JwtParser parser;
+    private final ConcurrentHashMap<String, FirebaseIdentity> verifiedTokens = new ConcurrentHashMap<>();
+    
+    @Value("${firebase.verified-token-cache-size:10000}")
+    private int verifiedTokenCacheSize;
+    
+    @Autowired
+    public FirebaseService(FirebasePublicKeyCache publicKeyCache,
+                           @Value("${firebase.project-id}") String projectId,
+                           @Value("${firebase.clock-skew-seconds:30}") long clockSkewSeconds) {
+        // Built once and reused; JJWT parsers are immutable and thread-safe
+        this.parser = Jwts.parser()
+                .keyLocator(new LocatorAdapter<Key>() {
+                    @Override
+                    protected Key locate(JwsHeader header) {
+                        if (!"RS256".equals(header.getAlgorithm())) {
+                            throw new SignatureException("Unexpected Firebase token algorithm: " + header.getAlgorithm());
+                        }
+                        PublicKey key = publicKeyCache.getKey(header.getKeyId());
+                        if (key == null) {
+                            throw new SignatureException("Unknown Firebase key ID: " + header.getKeyId());
+                        }
+                        return key;
+                    }
+                })
+                .requireIssuer(ISSUER_PREFIX + projectId)
+                .requireAudience(projectId)
+                .clockSkewSeconds(clockSkewSeconds)
+                .build();
+    }
+    
+    public FirebaseIdentity verifyIdToken(String idToken) {
+        long now = System.currentTimeMillis();
+        FirebaseIdentity cached = verifiedTokens.get(idToken);
+        if (cached != null) {
+            if (cached.expiresAt() > now) {
+                return cached;
+            }
+            verifiedTokens.remove(idToken, cached);
+        }
+        
         try {
-            FirebaseToken decodedToken = FirebaseAuth.getInstance().verifyIdToken(idToken);
-            log.info("Firebase token verified successfully for UID: {}", decodedToken.getUid());
-            return decodedToken;
-        } catch (FirebaseAuthException e) {
+            Claims claims = parser.parseSignedClaims(idToken).getPayload();
+            if (claims.getSubject() == null || claims.getSubject().isEmpty()) {
+                throw new JwtException("Firebase token has no subject");
+            }
+            Number authTime = claims.get("auth_time", Number.class);
+            if (authTime == null || authTime.longValue() * 1000L > now + 60_000L) {
+                throw new JwtException("Firebase token has an invalid auth_time");
+            }
+            
+            Object phoneNumber = claims.get("phone_number");
+            FirebaseIdentity identity = new FirebaseIdentity(
+                    claims.getSubject(),
+                    Objects.nonNull(phoneNumber) ? phoneNumber.toString() : null,
+                    claims.getExpiration().getTime());
+            remember(idToken, identity, now);
+            log.info("Firebase token verified successfully for UID: {}", identity.uid());
+            return identity;
+        } catch (JwtException | IllegalArgumentException e) {
             log.error("Firebase token verification failed: {}", e.getMessage());
             throw e;
         }
@@ -25,10 +93,8 @@ public class FirebaseService {
     
     public boolean validatePhoneNumber(String idToken, String phoneNumber) {
         try {
-            FirebaseToken decodedToken = verifyIdToken(idToken);
-            String tokenPhoneNumber = Objects.nonNull(decodedToken.getClaims().get("phone_number"))
-                    ? decodedToken.getClaims().get("phone_number").toString() 
-                    : null;
+            FirebaseIdentity identity = verifyIdToken(idToken);
+            String tokenPhoneNumber = identity.phoneNumber();
             
             if (Objects.isNull(tokenPhoneNumber)) {
                 log.warn("Phone number not found in Firebase token");
@@ -44,10 +110,22 @@ public class FirebaseService {
             }
             
             return matches;
-        } catch (FirebaseAuthException e) {
+        } catch (JwtException | IllegalArgumentException e) {
             log.error("Error validating phone number: {}", e.getMessage());
             return false;
         }
     }
+    
+    private void remember(String idToken, FirebaseIdentity identity, long now) {
+        if (verifiedTokens.size() >= verifiedTokenCacheSize) {
+            verifiedTokens.values().removeIf(entry -> entry.expiresAt() <= now);
+            if (verifiedTokens.size() >= verifiedTokenCacheSize) {
+                return;
+            }
+        }
+        verifiedTokens.put(idToken, identity);
+    }
+    
+    public record FirebaseIdentity(String uid, String phoneNumber, long expiresAt) {
+    }
 }
-
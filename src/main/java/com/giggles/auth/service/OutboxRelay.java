@@ -0,0 +1,226 @@
+package com.giggles.auth.service;
+
+import com.giggles.auth.entity.OutboxEventEntity;
+import com.giggles.auth.enums.OutboxEventStatus;
+import com.giggles.auth.repository.OutboxEventRepository;
+import com.giggles.auth.sharding.ShardRouter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.model.BatchResultErrorEntry;
+import software.amazon.awssdk.services.sqs.model.MessageAttributeValue;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequest;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchResponse;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchResultEntry;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Drains the outbox table to SQS with SendMessageBatch. Each cycle claims up to
+// batchSize * parallelBatches rows and keeps all of their batches in flight at once.
+// Claims are committed as a lease on next_attempt_at before sending, so no transaction or row lock
+// is held while SQS is called; rows of a relay that dies mid-send are picked up once the lease runs out.
+@Component
+@ConditionalOnProperty(name = "outbox.enabled", havingValue = "true")
+@Slf4j
+public class OutboxRelay {
+    
+    private static final int SQS_MAX_BATCH_SIZE = 10;
+    private static final int MAX_CYCLES_PER_RUN = 20;
+    
+    private final OutboxEventRepository outboxEventRepository;
+    private final SqsAsyncClient sqsAsyncClient;
+    private final TransactionTemplate transactionTemplate;
+    private final ShardRouter shardRouter;
+    
+    @Value("${aws.sqs.signup-queue-url}")
+    private String queueUrl;
+    
+    @Value("${aws.sqs.fifo:false}")
+    private boolean fifoQueue;
+    
+    @Value("${outbox.relay.batch-size:10}")
+    private int batchSize;
+    
+    @Value("${outbox.relay.parallel-batches:8}")
+    private int parallelBatches;
+    
+    @Value("${outbox.relay.max-attempts:10}")
+    private int maxAttempts;
+    
+    @Value("${outbox.relay.base-backoff-ms:1000}")
+    private long baseBackoffMs;
+    
+    @Value("${outbox.relay.max-backoff-ms:300000}")
+    private long maxBackoffMs;
+    
+    @Value("${outbox.relay.retention-hours:24}")
+    private long retentionHours;
+    
+    // Must exceed aws.sqs.api-call-timeout-ms, or a slow send can be claimed and sent again by another relay
+    @Value("${outbox.relay.lease-ms:60000}")
+    private long leaseMs;
+    
+    @Autowired
+    public OutboxRelay(OutboxEventRepository outboxEventRepository, SqsAsyncClient sqsAsyncClient,
+                       TransactionTemplate transactionTemplate, ShardRouter shardRouter) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.sqsAsyncClient = sqsAsyncClient;
+        this.transactionTemplate = transactionTemplate;
+        this.shardRouter = shardRouter;
+    }
+    
+    // Events are written on the shard of the user they belong to, so each shard's outbox is drained in turn
+    @Scheduled(fixedDelayString = "${outbox.relay.interval-ms:1000}")
+    public void relay() {
+        shardRouter.forEachShard(this::relayShard);
+    }
+    
+    @Scheduled(fixedDelayString = "${outbox.relay.cleanup-interval-ms:3600000}")
+    public void purgeSentEvents() {
+        shardRouter.forEachShard(this::purgeShard);
+    }
+    
+    private void relayShard() {
+        int claimSize = Math.min(batchSize, SQS_MAX_BATCH_SIZE) * parallelBatches;
+        for (int cycle = 0; cycle < MAX_CYCLES_PER_RUN; cycle++) {
+            List<OutboxEventEntity> events = transactionTemplate.execute(status -> claim(claimSize));
+            if (events == null || events.isEmpty()) {
+                return;
+            }
+            send(events);
+            if (events.size() < claimSize) {
+                return;
+            }
+        }
+    }
+    
+    private void purgeShard() {
+        Integer deleted = transactionTemplate.execute(status -> outboxEventRepository.deleteSentBefore(
+                OutboxEventStatus.SENT, LocalDateTime.now().minusHours(retentionHours)));
+        if (deleted != null && deleted > 0) {
+            log.info("Purged {} sent outbox events", deleted);
+        }
+    }
+    
+    private List<OutboxEventEntity> claim(int claimSize) {
+        LocalDateTime now = LocalDateTime.now();
+        List<OutboxEventEntity> events = outboxEventRepository.claimPending(now, claimSize);
+        LocalDateTime leaseUntil = now.plusNanos(leaseMs * 1_000_000L);
+        for (OutboxEventEntity event : events) {
+            event.setNextAttemptAt(leaseUntil);
+        }
+        return events;
+    }
+    
+    private void send(List<OutboxEventEntity> events) {
+        int chunkSize = Math.min(batchSize, SQS_MAX_BATCH_SIZE);
+        List<CompletableFuture<Void>> inFlight = new ArrayList<>();
+        List<Long> sentIds = new ArrayList<>();
+        Map<Long, String> failures = new HashMap<>();
+        
+        for (int from = 0; from < events.size(); from += chunkSize) {
+            List<OutboxEventEntity> chunk = events.subList(from, Math.min(from + chunkSize, events.size()));
+            inFlight.add(sendBatch(chunk).handle((response, error) -> {
+                synchronized (sentIds) {
+                    collectResults(chunk, response, error, sentIds, failures);
+                }
+                return null;
+            }));
+        }
+        // Bounded by the SQS client's API call timeout
+        CompletableFuture.allOf(inFlight.toArray(new CompletableFuture[0])).join();
+        
+        LocalDateTime now = LocalDateTime.now();
+        List<OutboxEventEntity> retries = new ArrayList<>();
+        for (OutboxEventEntity event : events) {
+            String error = failures.get(event.getId());
+            if (error != null) {
+                scheduleRetry(event, error, now);
+                retries.add(event);
+            }
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!sentIds.isEmpty()) {
+                outboxEventRepository.markSent(sentIds, OutboxEventStatus.SENT, now);
+            }
+            outboxEventRepository.saveAll(retries);
+        });
+        
+        log.debug("Outbox relay sent {} events, {} failed", sentIds.size(), failures.size());
+    }
+    
+    private CompletableFuture<SendMessageBatchResponse> sendBatch(List<OutboxEventEntity> chunk) {
+        List<SendMessageBatchRequestEntry> entries = new ArrayList<>(chunk.size());
+        for (OutboxEventEntity event : chunk) {
+            SendMessageBatchRequestEntry.Builder entry = SendMessageBatchRequestEntry.builder()
+                    .id(event.getId().toString())
+                    .messageBody(event.getPayload())
+                    .messageAttributes(Map.of(
+                            "eventType", stringAttribute(event.getEventType().name()),
+                            "eventId", stringAttribute(event.getDedupId())));
+            if (fifoQueue) {
+                entry.messageDeduplicationId(event.getDedupId())
+                        .messageGroupId(event.getAggregateId().toString());
+            }
+            entries.add(entry.build());
+        }
+        try {
+            return sqsAsyncClient.sendMessageBatch(SendMessageBatchRequest.builder()
+                    .queueUrl(queueUrl)
+                    .entries(entries)
+                    .build());
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+    
+    private void collectResults(List<OutboxEventEntity> chunk, SendMessageBatchResponse response, Throwable error,
+                                List<Long> sentIds, Map<Long, String> failures) {
+        if (error != null) {
+            String message = error.getMessage();
+            chunk.forEach(event -> failures.put(event.getId(), message));
+            return;
+        }
+        for (SendMessageBatchResultEntry entry : response.successful()) {
+            sentIds.add(Long.valueOf(entry.id()));
+        }
+        for (BatchResultErrorEntry entry : response.failed()) {
+            failures.put(Long.valueOf(entry.id()), entry.code() + ": " + entry.message());
+        }
+    }
+    
+    private void scheduleRetry(OutboxEventEntity event, String error, LocalDateTime now) {
+        int attempts = event.getAttempts() + 1;
+        event.setAttempts(attempts);
+        event.setLastError(error != null && error.length() > 1000 ? error.substring(0, 1000) : error);
+        
+        if (attempts >= maxAttempts) {
+            event.setStatus(OutboxEventStatus.FAILED);
+            log.error("Outbox event {} failed after {} attempts: {}", event.getId(), attempts, error);
+            return;
+        }
+        long backoff = Math.min(maxBackoffMs, baseBackoffMs << Math.min(attempts - 1, 20));
+        long jitter = ThreadLocalRandom.current().nextLong(backoff / 4 + 1);
+        event.setNextAttemptAt(now.plusNanos((backoff + jitter) * 1_000_000L));
+        log.warn("Outbox event {} send failed (attempt {}), retrying: {}", event.getId(), attempts, error);
+    }
+    
+    private MessageAttributeValue stringAttribute(String value) {
+        return MessageAttributeValue.builder()
+                .dataType("String")
+                .stringValue(value)
+                .build();
+    }
+}
@@ -0,0 +1,86 @@
+package com.giggles.auth.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.giggles.auth.entity.OutboxEventEntity;
+import com.giggles.auth.entity.UserEntity;
+import com.giggles.auth.enums.OutboxEventStatus;
+import com.giggles.auth.enums.OutboxEventType;
+import com.giggles.auth.repository.OutboxEventRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+// Writes auth events to the outbox table in the caller's transaction; OutboxRelay publishes them later
+@Service
+@Slf4j
+public class OutboxService {
+    
+    private final OutboxEventRepository outboxEventRepository;
+    private final ObjectMapper objectMapper;
+    
+    @Value("${outbox.enabled:false}")
+    private boolean enabled;
+    
+    @Autowired
+    public OutboxService(OutboxEventRepository outboxEventRepository, ObjectMapper objectMapper) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.objectMapper = objectMapper;
+    }
+    
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordSignup(UserEntity user) {
+        if (!enabled) {
+            return;
+        }
+        Map<String, Object> payload = basePayload(OutboxEventType.USER_SIGNED_UP, user);
+        payload.put("name", user.getName());
+        payload.put("email", user.getEmail());
+        payload.put("phoneNumber", user.getPhoneNumber());
+        save(OutboxEventType.USER_SIGNED_UP, user.getId(), payload);
+    }
+    
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordLogin(UserEntity user) {
+        if (!enabled) {
+            return;
+        }
+        save(OutboxEventType.USER_LOGGED_IN, user.getId(), basePayload(OutboxEventType.USER_LOGGED_IN, user));
+    }
+    
+    private Map<String, Object> basePayload(OutboxEventType eventType, UserEntity user) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("eventType", eventType.name());
+        payload.put("userId", user.getId());
+        payload.put("role", user.getRole().name());
+        payload.put("occurredAt", LocalDateTime.now().toString());
+        return payload;
+    }
+    
+    private void save(OutboxEventType eventType, Long aggregateId, Map<String, Object> payload) {
+        String dedupId = UUID.randomUUID().toString();
+        payload.put("eventId", dedupId);
+        
+        OutboxEventEntity event = new OutboxEventEntity();
+        event.setEventType(eventType);
+        event.setAggregateId(aggregateId);
+        event.setDedupId(dedupId);
+        event.setStatus(OutboxEventStatus.PENDING);
+        event.setNextAttemptAt(LocalDateTime.now());
+        try {
+            event.setPayload(objectMapper.writeValueAsString(payload));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize outbox payload", e);
+        }
+        outboxEventRepository.save(event);
+        log.debug("Recorded {} outbox event for aggregate ID: {}", eventType, aggregateId);
+    }
+}
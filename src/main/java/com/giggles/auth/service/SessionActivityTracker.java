@@ -0,0 +1,155 @@
+package com.giggles.auth.service;
+
+import com.giggles.auth.repository.session.SessionStore;
+import com.giggles.auth.sharding.ShardRouter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Records session last-seen times in memory and writes them periodically as one UPDATE per batch,
+// so any number of hits on a session within a flush window costs a single row write.
+@Service
+@Slf4j
+public class SessionActivityTracker {
+    
+    private static final String FLUSH_SQL =
+            "UPDATE user_sessions s SET last_seen_at = v.seen_at " +
+            "FROM unnest(?::varchar[], ?::timestamp[]) AS v(token, seen_at) " +
+            "WHERE s.token = v.token AND (s.last_seen_at IS NULL OR s.last_seen_at < v.seen_at)";
+    
+    private static final String IDLE_SESSIONS_SQL =
+            "SELECT token FROM user_sessions " +
+            "WHERE status = 'VALID' AND COALESCE(last_seen_at, created_at) < ? AND token > ? " +
+            "ORDER BY token LIMIT ?";
+    
+    private final ConcurrentHashMap<String, Long> lastSeen = new ConcurrentHashMap<>();
+    private final JdbcTemplate jdbcTemplate;
+    private final SessionStore sessionStore;
+    private final ShardRouter shardRouter;
+    
+    @Value("${session.activity.enabled:true}")
+    private boolean enabled;
+    
+    @Value("${session.activity.max-batch-size:5000}")
+    private int maxBatchSize;
+    
+    @Value("${session.idle-timeout-minutes:0}")
+    private long idleTimeoutMinutes;
+    
+    @Autowired
+    public SessionActivityTracker(JdbcTemplate jdbcTemplate, SessionStore sessionStore, ShardRouter shardRouter) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.sessionStore = sessionStore;
+        this.shardRouter = shardRouter;
+    }
+    
+    public void recordActivity(String token) {
+        if (enabled) {
+            lastSeen.merge(token, System.currentTimeMillis(), Math::max);
+        }
+    }
+    
+    @Scheduled(fixedDelayString = "${session.activity.flush-interval-ms:10000}")
+    public void flush() {
+        // Bounded to the sessions pending at the start, so a steady stream of hits or a failing database
+        // can't keep the shared scheduler thread here; anything left over waits for the next run
+        List<String> pending = new ArrayList<>(lastSeen.keySet());
+        for (int from = 0; from < pending.size(); from += maxBatchSize) {
+            List<String> tokens = new ArrayList<>();
+            List<Timestamp> seenAt = new ArrayList<>();
+            for (String token : pending.subList(from, Math.min(from + maxBatchSize, pending.size()))) {
+                // A hit arriving after the removal starts a new entry for the next flush
+                Long seen = lastSeen.remove(token);
+                if (seen != null) {
+                    tokens.add(token);
+                    seenAt.add(toTimestamp(seen));
+                }
+            }
+            if (tokens.isEmpty()) {
+                continue;
+            }
+            // Tokens don't carry their shard here, so each shard applies the batch and matches only its own rows
+            AtomicBoolean failed = new AtomicBoolean();
+            shardRouter.forEachShard(() -> {
+                if (!write(tokens, seenAt)) {
+                    failed.set(true);
+                }
+            });
+            if (failed.get()) {
+                // Rewriting shards that did succeed is harmless, the update only ever moves last_seen_at forward
+                for (int i = 0; i < tokens.size(); i++) {
+                    lastSeen.merge(tokens.get(i), seenAt.get(i).getTime(), Math::max);
+                }
+                return;
+            }
+        }
+    }
+    
+    @Scheduled(fixedDelayString = "${session.idle-check-interval-ms:60000}")
+    public void expireIdleSessions() {
+        if (idleTimeoutMinutes <= 0) {
+            return;
+        }
+        // Pending hits must land first or recently used sessions would look idle
+        flush();
+        
+        Timestamp cutoff = Timestamp.valueOf(LocalDateTime.now().minusMinutes(idleTimeoutMinutes));
+        shardRouter.forEachShard(() -> expireIdleSessions(cutoff));
+    }
+    
+    // Pages by token rather than relying on expired rows dropping out of the query: a memory or redis store
+    // without the audit store never writes user_sessions, so the same rows would come back forever
+    private void expireIdleSessions(Timestamp cutoff) {
+        String after = "";
+        List<String> idle;
+        do {
+            idle = jdbcTemplate.queryForList(IDLE_SESSIONS_SQL, String.class, cutoff, after, maxBatchSize);
+            if (!idle.isEmpty()) {
+                sessionStore.expireAll(idle);
+                after = idle.get(idle.size() - 1);
+                log.info("Expired {} sessions idle for more than {} minutes", idle.size(), idleTimeoutMinutes);
+            }
+        } while (idle.size() == maxBatchSize);
+    }
+    
+    private boolean write(List<String> tokens, List<Timestamp> seenAt) {
+        try {
+            int updated = jdbcTemplate.execute((Connection connection) -> {
+                Array tokenArray = connection.createArrayOf("varchar", tokens.toArray());
+                Array seenAtArray = connection.createArrayOf("timestamp", seenAt.toArray());
+                try (PreparedStatement statement = connection.prepareStatement(FLUSH_SQL)) {
+                    statement.setArray(1, tokenArray);
+                    statement.setArray(2, seenAtArray);
+                    return statement.executeUpdate();
+                } finally {
+                    tokenArray.free();
+                    seenAtArray.free();
+                }
+            });
+            log.debug("Flushed last-seen for {} sessions ({} rows updated)", tokens.size(), updated);
+            return true;
+        } catch (RuntimeException e) {
+            log.error("Failed to flush session activity for {} sessions: {}", tokens.size(), e.getMessage());
+            return false;
+        }
+    }
+    
+    private Timestamp toTimestamp(long epochMillis) {
+        return Timestamp.valueOf(LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault()));
+    }
+}
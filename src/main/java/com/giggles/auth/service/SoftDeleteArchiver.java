@@ -0,0 +1,97 @@
+package com.giggles.auth.service;
+
+import com.giggles.auth.sharding.ShardRouter;
+import com.giggles.auth.sharding.UserDirectory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// Moves soft-deleted users (with all their sessions) and soft-deleted sessions into the *_archive
+// tables. Each run moves at most one batch of each, as a single statement, so the copy and delete
+// commit together and the hot tables are only ever locked for one small batch.
+@Component
+@ConditionalOnProperty(name = "archive.enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class SoftDeleteArchiver {
+    
+    private static final String USER_COLUMNS =
+            "id, created_at, updated_at, deleted, name, email, phone_number, address, password, role, " +
+            "session_type, login_attempts, is_locked";
+    
+    private static final String SESSION_COLUMNS =
+            "id, created_at, updated_at, deleted, user_id, token, expiry, status, ip_address, user_agent, last_seen_at";
+    
+    // Foreign keys are checked at the end of the statement, when the users' sessions are already gone
+    private static final String ARCHIVE_USERS_SQL =
+            "WITH batch AS (" +
+            "  SELECT id FROM users WHERE deleted = true ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED), " +
+            "moved_sessions AS (" +
+            "  DELETE FROM user_sessions s USING batch WHERE s.user_id = batch.id " +
+            "  RETURNING s.id, s.created_at, s.updated_at, s.deleted, s.user_id, s.token, s.expiry, s.status, " +
+            "  s.ip_address, s.user_agent, s.last_seen_at), " +
+            "archived_sessions AS (" +
+            "  INSERT INTO user_sessions_archive (" + SESSION_COLUMNS + ", archived_at) " +
+            "  SELECT " + SESSION_COLUMNS + ", now() FROM moved_sessions), " +
+            "moved_users AS (" +
+            "  DELETE FROM users u USING batch WHERE u.id = batch.id " +
+            "  RETURNING u.id, u.created_at, u.updated_at, u.deleted, u.name, u.email, u.phone_number, u.address, " +
+            "  u.password, u.role, u.session_type, u.login_attempts, u.is_locked), " +
+            "archived_users AS (" +
+            "  INSERT INTO users_archive (" + USER_COLUMNS + ", archived_at) " +
+            "  SELECT " + USER_COLUMNS + ", now() FROM moved_users RETURNING id) " +
+            "SELECT id FROM archived_users";
+    
+    private static final String ARCHIVE_SESSIONS_SQL =
+            "WITH batch AS (" +
+            "  SELECT id FROM user_sessions WHERE deleted = true ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED), " +
+            "moved_sessions AS (" +
+            "  DELETE FROM user_sessions s USING batch WHERE s.id = batch.id " +
+            "  RETURNING s.id, s.created_at, s.updated_at, s.deleted, s.user_id, s.token, s.expiry, s.status, " +
+            "  s.ip_address, s.user_agent, s.last_seen_at), " +
+            "archived_sessions AS (" +
+            "  INSERT INTO user_sessions_archive (" + SESSION_COLUMNS + ", archived_at) " +
+            "  SELECT " + SESSION_COLUMNS + ", now() FROM moved_sessions RETURNING id) " +
+            "SELECT COUNT(*) FROM archived_sessions";
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final ShardRouter shardRouter;
+    private final UserDirectory userDirectory;
+    
+    @Value("${archive.batch-size:500}")
+    private int batchSize;
+    
+    @Autowired
+    public SoftDeleteArchiver(JdbcTemplate jdbcTemplate, ShardRouter shardRouter, UserDirectory userDirectory) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.shardRouter = shardRouter;
+        this.userDirectory = userDirectory;
+    }
+    
+    // Throttled by the schedule: one batch per table per run keeps the archiver's share of I/O bounded
+    @Scheduled(fixedDelayString = "${archive.interval-ms:5000}", initialDelayString = "${archive.interval-ms:5000}")
+    public void archive() {
+        shardRouter.forEachShard(this::archiveShard);
+    }
+    
+    private void archiveShard() {
+        try {
+            List<Long> users = jdbcTemplate.queryForList(ARCHIVE_USERS_SQL, Long.class, batchSize);
+            Integer sessions = jdbcTemplate.queryForObject(ARCHIVE_SESSIONS_SQL, Integer.class, batchSize);
+            if (!users.isEmpty() || (sessions != null && sessions > 0)) {
+                log.info("Archived {} deleted users and {} deleted sessions", users.size(), sessions);
+            }
+            // Archived users give up their email and phone number; the directory may hold them on any shard
+            if (shardRouter.isEnabled()) {
+                userDirectory.removeUsers(users);
+            }
+        } catch (Exception e) {
+            log.error("Failed to archive soft-deleted rows", e);
+        }
+    }
+}
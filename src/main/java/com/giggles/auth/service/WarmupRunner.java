@@ -0,0 +1,197 @@
+package com.giggles.auth.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.giggles.auth.dto.request.SignUpOrLoginRequest;
+import com.giggles.auth.dto.response.AuthResponse;
+import com.giggles.auth.dto.response.UserDTO;
+import com.giggles.auth.enums.UserRole;
+import com.giggles.auth.enums.UserSessionStatus;
+import com.giggles.auth.repository.UserRepository;
+import com.giggles.auth.repository.UserSessionRepository;
+import com.giggles.auth.repository.session.SessionStore;
+import com.giggles.auth.util.JwtUtil;
+import com.giggles.auth.util.PasswordUtil;
+import com.giggles.auth.sharding.ShardRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Warms the login path before the pod takes traffic. ApplicationRunners run before Boot publishes
+// ApplicationReadyEvent, so /actuator/health/readiness stays REFUSING_TRAFFIC until this returns.
+// Everything here is read-only against synthetic data: nothing is written to the database.
+// Failures are logged and never block startup.
+@Component
+@ConditionalOnProperty(name = "warmup.enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class WarmupRunner implements ApplicationRunner {
+    
+    private static final long SYNTHETIC_USER_ID = -1L;
+    private static final String SYNTHETIC_EMAIL = "warmup@giggles.invalid";
+    private static final String SYNTHETIC_PHONE = "0000000000";
+    
+    private final PasswordUtil passwordUtil;
+    private final JwtUtil jwtUtil;
+    private final ObjectMapper objectMapper;
+    private final UserRepository userRepository;
+    private final UserSessionRepository userSessionRepository;
+    private final SessionStore sessionStore;
+    private final DataSource dataSource;
+    
+    @Value("${warmup.iterations:2000}")
+    private int iterations;
+    
+    @Value("${warmup.bcrypt-iterations:3}")
+    private int bcryptIterations;
+    
+    @Value("${warmup.query-iterations:200}")
+    private int queryIterations;
+    
+    @Value("${warmup.max-duration-ms:60000}")
+    private long maxDurationMs;
+    
+    private long deadline;
+    
+    @Autowired
+    public WarmupRunner(PasswordUtil passwordUtil, JwtUtil jwtUtil, ObjectMapper objectMapper,
+                        UserRepository userRepository, UserSessionRepository userSessionRepository,
+                        SessionStore sessionStore, DataSource dataSource) {
+        this.passwordUtil = passwordUtil;
+        this.jwtUtil = jwtUtil;
+        this.objectMapper = objectMapper;
+        this.userRepository = userRepository;
+        this.userSessionRepository = userSessionRepository;
+        this.sessionStore = sessionStore;
+        this.dataSource = dataSource;
+    }
+    
+    @Override
+    public void run(ApplicationArguments args) {
+        long start = System.nanoTime();
+        deadline = start + maxDurationMs * 1_000_000;
+        List<String> report = new ArrayList<>();
+        
+        runStep(report, "connection pool", this::fillConnectionPool);
+        
+        // BCrypt's key schedule loop is compiled during the first call, so a few calls are enough
+        runStep(report, "bcrypt.matches", () -> {
+            String hash = passwordUtil.encodePassword("warmup-password");
+            return measure("bcrypt.matches", bcryptIterations, () -> passwordUtil.matches("warmup-password", hash));
+        });
+        
+        runStep(report, "jwt generate+parse", () -> measure("jwt generate+parse", iterations, () -> jwtUtil.parseToken(
+                jwtUtil.generateToken(SYNTHETIC_USER_ID, SYNTHETIC_PHONE, UserRole.USER.name()))));
+        
+        runStep(report, "json request+response", () -> {
+            AuthResponse response = AuthResponse.builder()
+                    .authToken(jwtUtil.generateToken(SYNTHETIC_USER_ID, SYNTHETIC_PHONE, UserRole.USER.name()))
+                    .user(UserDTO.builder().id(SYNTHETIC_USER_ID).name("Warmup").email(SYNTHETIC_EMAIL)
+                            .phoneNumber(SYNTHETIC_PHONE).role(UserRole.USER.name()).build())
+                    .build();
+            byte[] requestJson = ("{\"isSignup\":false,\"email\":\"" + SYNTHETIC_EMAIL + "\",\"password\":\"warmup\"}")
+                    .getBytes(StandardCharsets.UTF_8);
+            return measure("json request+response", iterations, () -> {
+                objectMapper.readValue(requestJson, SignUpOrLoginRequest.class);
+                return objectMapper.writeValueAsBytes(response);
+            });
+        });
+        
+        runStep(report, "user queries", () -> measure("user queries", queryIterations, () -> {
+            userRepository.findActiveByEmail(SYNTHETIC_EMAIL);
+            userRepository.findActiveByPhoneNumber(SYNTHETIC_PHONE);
+            userRepository.existsActiveByEmail(SYNTHETIC_EMAIL);
+            return userRepository.existsActiveByPhoneNumber(SYNTHETIC_PHONE);
+        }));
+        
+        runStep(report, "session queries", () -> measure("session queries", queryIterations, () -> {
+            userSessionRepository.findByToken(SYNTHETIC_EMAIL);
+            userSessionRepository.findActiveByUserId(SYNTHETIC_USER_ID, UserSessionStatus.VALID, LocalDateTime.now());
+            return sessionStore.isValid(SYNTHETIC_EMAIL);
+        }));
+        
+        log.info("Warmup finished in {} ms{}", (System.nanoTime() - start) / 1_000_000,
+                report.isEmpty() ? "" : ":\n  " + String.join("\n  ", report));
+    }
+    
+    // Each step is caught on its own, so a failing one (say, the database being down) doesn't skip the rest
+    private void runStep(List<String> report, String name, Step step) {
+        try {
+            report.add(String.valueOf(step.run()));
+        } catch (Exception e) {
+            log.warn("Warmup step '{}' failed, continuing: {}", name, e.toString());
+            report.add(name + ": failed");
+        }
+    }
+    
+    // Opens connections up to each pool's minimum idle size at once, so none are created on the request path
+    private String fillConnectionPool() throws SQLException {
+        List<DataSource> pools = dataSource instanceof ShardRoutingDataSource routing
+                ? new ArrayList<>(routing.getShards().values()) : List.of(dataSource);
+        long start = System.nanoTime();
+        int opened = 0;
+        int filled = 0;
+        for (DataSource pool : pools) {
+            // A non-Hikari shard has nothing to fill, but the shards after it still do
+            if (!(pool instanceof HikariDataSource hikari)) {
+                continue;
+            }
+            opened += fillConnectionPool(hikari);
+            filled++;
+        }
+        if (filled == 0) {
+            return "connection pool: not Hikari, skipped";
+        }
+        return String.format("connection pool: %d connections in %d of %d pool(s) in %.1f ms", opened, filled,
+                pools.size(), (System.nanoTime() - start) / 1e6);
+    }
+    
+    private int fillConnectionPool(HikariDataSource hikari) throws SQLException {
+        int target = Math.min(hikari.getMinimumIdle(), hikari.getMaximumPoolSize());
+        List<Connection> connections = new ArrayList<>();
+        try {
+            for (int i = 0; i < target; i++) {
+                Connection connection = hikari.getConnection();
+                connections.add(connection);
+                connection.isValid(1);
+            }
+        } finally {
+            for (Connection connection : connections) {
+                connection.close();
+            }
+        }
+        return connections.size();
+    }
+    
+    private String measure(String name, int count, Step step) throws Exception {
+        long[] nanos = new long[Math.max(1, count)];
+        int done = 0;
+        while (done < nanos.length && (done == 0 || System.nanoTime() < deadline)) {
+            long start = System.nanoTime();
+            step.run();
+            nanos[done++] = System.nanoTime() - start;
+        }
+        long first = nanos[0];
+        long[] sorted = Arrays.copyOf(nanos, done);
+        Arrays.sort(sorted);
+        return String.format("%s: %d runs, first %.2f ms, then p50 %.3f ms, p99 %.3f ms", name, done, first / 1e6,
+                sorted[done / 2] / 1e6, sorted[Math.min(done - 1, (int) (done * 0.99))] / 1e6);
+    }
+    
+    @FunctionalInterface
+    private interface Step {
+        Object run() throws Exception;
+    }
+}
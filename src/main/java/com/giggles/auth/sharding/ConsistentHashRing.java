@@ -0,0 +1,49 @@
+package com.giggles.auth.sharding;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Consistent-hash ring over shard ids. Each shard owns virtualNodes points, so adding a shard moves
+// roughly 1/n of the keys and spreads the moved keys' sources evenly across the existing shards.
+public class ConsistentHashRing {
+    
+    private final TreeMap<Long, Integer> ring = new TreeMap<>();
+    
+    public ConsistentHashRing(Collection<Integer> shardIds, int virtualNodes) {
+        if (shardIds.isEmpty()) {
+            throw new IllegalArgumentException("A hash ring needs at least one shard");
+        }
+        for (int shardId : shardIds) {
+            for (int node = 0; node < virtualNodes; node++) {
+                ring.put(hash("shard-" + shardId + "#" + node), shardId);
+            }
+        }
+    }
+    
+    public int shardFor(String key) {
+        Map.Entry<Long, Integer> entry = ring.ceilingEntry(hash(key));
+        return entry != null ? entry.getValue() : ring.firstEntry().getValue();
+    }
+    
+    // First 8 bytes of SHA-256: stable across JVMs and releases, unlike String.hashCode
+    private static long hash(String key) {
+        byte[] digest = sha256().digest(key.getBytes(StandardCharsets.UTF_8));
+        long hash = 0;
+        for (int i = 0; i < 8; i++) {
+            hash = (hash << 8) | (digest[i] & 0xff);
+        }
+        return hash;
+    }
+    
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.giggles.auth.sharding;
+
+import java.util.function.Supplier;
+
+// The shard the current thread's database work is routed to. It must be set before a transaction
+// begins: the connection is bound to the transaction and changing the shard inside it has no effect.
+public final class ShardContext {
+    
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+    
+    private ShardContext() {
+    }
+    
+    public static Integer current() {
+        return CURRENT.get();
+    }
+    
+    public static <T> T callOn(int shardId, Supplier<T> action) {
+        Integer outer = CURRENT.get();
+        CURRENT.set(shardId);
+        try {
+            return action.get();
+        } finally {
+            if (outer == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(outer);
+            }
+        }
+    }
+}
@@ -0,0 +1,575 @@
+package com.giggles.auth.sharding;
+
+import com.giggles.auth.dto.response.RebalanceResponse;
+import com.giggles.auth.util.IdentifierUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+// Moves directory rows and users onto the shard the current ring assigns them, while the service keeps
+// running. After adding a shard, deploy with the new shard list and sharding.previous-ring set to the old
+// one, run the rebalancer, then drop previous-ring. Each user moves in its own pair of transactions and
+// keeps its id; its sessions move with it, and a forwarding row on the source shard (table moved_users) lets
+// tokens that name the source shard find them.
+// Users created before sharding was enabled are registered in the directory on the way.
+@Component
+@ConditionalOnProperty(name = "sharding.enabled", havingValue = "true")
+@Slf4j
+public class ShardRebalancer {
+    
+    private static final String SCAN_IDENTIFIERS_SQL =
+            "SELECT identifier, user_id, shard_id, claim_id, created_at FROM user_identifiers " +
+            "WHERE identifier > ? ORDER BY identifier LIMIT ?";
+    
+    private static final String COPY_IDENTIFIER_SQL =
+            "INSERT INTO user_identifiers (identifier, user_id, shard_id, claim_id, created_at) VALUES (?, ?, ?, ?, ?) " +
+            "ON CONFLICT (identifier) DO NOTHING";
+    
+    private static final String IDENTIFIER_OWNER_SQL =
+            "SELECT user_id FROM user_identifiers WHERE identifier = ?";
+    
+    private static final String DELETE_IDENTIFIER_SQL =
+            "DELETE FROM user_identifiers WHERE identifier = ?";
+    
+    // A pending claim older than this belongs to a signup that died or ran before the ring changed
+    private static final String DELETE_STALE_CLAIM_SQL =
+            "DELETE FROM user_identifiers WHERE identifier = ? AND user_id IS NULL " +
+            "AND created_at < now() - make_interval(secs => ?)";
+    
+    private static final String SCAN_USERS_SQL =
+            "SELECT id, email, phone_number FROM users WHERE deleted = false AND id > ? ORDER BY id LIMIT ?";
+    
+    private static final String USER_COLUMNS =
+            "id, created_at, updated_at, deleted, name, email, phone_number, address, password, role, " +
+            "session_type, login_attempts, is_locked";
+    
+    private static final String SESSION_COLUMNS =
+            "id, created_at, updated_at, deleted, user_id, token, expiry, status, ip_address, user_agent, last_seen_at";
+    
+    // The row lock also blocks new sessions for the user (their foreign key check waits on it) until the move ends
+    private static final String LOCK_USER_SQL =
+            "SELECT " + USER_COLUMNS + " FROM users WHERE id = ? AND deleted = false FOR UPDATE";
+    
+    private static final String LOCK_SESSIONS_SQL =
+            "SELECT " + SESSION_COLUMNS + " FROM user_sessions WHERE user_id = ? FOR UPDATE";
+    
+    private static final String INSERT_USER_SQL =
+            "INSERT INTO users (" + USER_COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON CONFLICT (id) DO NOTHING";
+    
+    private static final String INSERT_SESSION_SQL =
+            "INSERT INTO user_sessions (" + SESSION_COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON CONFLICT (id) DO NOTHING";
+    
+    // ON CONFLICT makes a retried move idempotent, but must not hide a different row that holds the same id
+    private static final String COUNT_COPIED_SQL =
+            "SELECT (SELECT COUNT(*) FROM users WHERE id = ? AND created_at = ?) + " +
+            "(SELECT COUNT(*) FROM user_sessions WHERE user_id = ? AND id = ANY(?))";
+    
+    // Registers users that predate sharding. A row pointing elsewhere is left alone: the copy found here may be
+    // left over from a failed move, and only a move repoints the directory.
+    private static final String REGISTER_MISSING_SQL =
+            "INSERT INTO user_identifiers (identifier, user_id, shard_id, created_at) VALUES (?, ?, ?, now()) " +
+            "ON CONFLICT (identifier) DO NOTHING";
+    
+    // Repoints the identifiers of a moved user; an identifier held by another user is left alone
+    private static final String REGISTER_SQL =
+            "INSERT INTO user_identifiers (identifier, user_id, shard_id, created_at) VALUES (?, ?, ?, now()) " +
+            "ON CONFLICT (identifier) DO UPDATE SET shard_id = EXCLUDED.shard_id " +
+            "WHERE user_identifiers.user_id = EXCLUDED.user_id AND user_identifiers.shard_id <> EXCLUDED.shard_id";
+    
+    private static final String REGISTERED_SHARD_SQL =
+            "SELECT shard_id FROM user_identifiers WHERE identifier = ? AND user_id = ?";
+    
+    // Matching created_at keeps a different user that happens to hold the same id on the target out of reach
+    private static final String DELETE_COPIED_SESSIONS_SQL =
+            "DELETE FROM user_sessions WHERE user_id = ? AND EXISTS (SELECT 1 FROM users WHERE id = ? AND created_at = ?)";
+    
+    private static final String DELETE_COPIED_USER_SQL = "DELETE FROM users WHERE id = ? AND created_at = ?";
+    
+    private static final String DELETE_SESSIONS_SQL = "DELETE FROM user_sessions WHERE user_id = ?";
+    
+    private static final String DELETE_USER_SQL = "DELETE FROM users WHERE id = ?";
+    
+    private static final String FORWARD_SQL =
+            "INSERT INTO moved_users (user_id, shard_id, moved_at) VALUES (?, ?, now()) " +
+            "ON CONFLICT (user_id) DO UPDATE SET shard_id = EXCLUDED.shard_id, moved_at = EXCLUDED.moved_at";
+    
+    // The user lives on this shard again, so tokens naming it must not be sent elsewhere
+    private static final String DELETE_FORWARD_SQL = "DELETE FROM moved_users WHERE user_id = ?";
+    
+    private static final String PURGE_FORWARDS_SQL =
+            "DELETE FROM moved_users WHERE moved_at < now() - make_interval(secs => ?)";
+    
+    private final ShardRouter shardRouter;
+    private final Map<Integer, DataSource> shards;
+    private final ReentrantLock running = new ReentrantLock();
+    
+    @Value("${sharding.rebalance.batch-size:500}")
+    private int batchSize;
+    
+    @Value("${sharding.stale-claim-seconds:300}")
+    private long staleClaimSeconds;
+    
+    // Forwarding rows are kept until every token issued before the move has expired
+    @Value("${jwt.expiration}")
+    private long tokenLifetimeMs;
+    
+    @Autowired
+    public ShardRebalancer(ShardRouter shardRouter, ShardRoutingDataSource dataSource) {
+        this.shardRouter = shardRouter;
+        this.shards = dataSource.getShards();
+    }
+    
+    // Runs one full pass over every shard; returns null if a pass is already running
+    public RebalanceResponse rebalance() {
+        if (!running.tryLock()) {
+            return null;
+        }
+        try {
+            Counts counts = new Counts();
+            for (int shardId : shardRouter.getShardIds()) {
+                purgeForwards(shardId);
+            }
+            // Directory rows first, so moved users are found through the current ring as soon as they land
+            for (int shardId : shardRouter.getShardIds()) {
+                rebalanceIdentifiers(shardId, counts);
+            }
+            for (int shardId : shardRouter.getShardIds()) {
+                rebalanceUsers(shardId, counts);
+            }
+            log.info("Rebalance finished: {} identifiers and {} users ({} sessions) moved, {} failed",
+                    counts.identifiers, counts.users, counts.sessions, counts.failed);
+            return RebalanceResponse.builder()
+                    .identifiersMoved(counts.identifiers)
+                    .usersMoved(counts.users)
+                    .sessionsMoved(counts.sessions)
+                    .failed(counts.failed)
+                    .build();
+        } finally {
+            running.unlock();
+        }
+    }
+    
+    private void rebalanceIdentifiers(int shardId, Counts counts) {
+        String after = "";
+        List<IdentifierRow> rows;
+        do {
+            rows = scanIdentifiers(shardId, after, batchSize);
+            for (IdentifierRow row : rows) {
+                after = row.identifier();
+                int target = shardRouter.shardFor(row.identifier());
+                if (target == shardId) {
+                    continue;
+                }
+                try {
+                    if (moveIdentifier(row, shardId, target)) {
+                        counts.identifiers++;
+                    }
+                } catch (SQLException e) {
+                    counts.failed++;
+                    log.error("Failed to move identifier {} from shard {} to {}", row.identifier(), shardId, target, e);
+                }
+            }
+        } while (rows.size() == batchSize);
+    }
+    
+    // Copies the row to its new shard and then drops the old one; a claim in progress is left to finish
+    // (or to go stale) on the shard it was made on
+    private boolean moveIdentifier(IdentifierRow row, int source, int target) throws SQLException {
+        if (row.userId() == null) {
+            try (Connection connection = shards.get(source).getConnection();
+                 PreparedStatement statement = connection.prepareStatement(DELETE_STALE_CLAIM_SQL)) {
+                statement.setString(1, row.identifier());
+                statement.setLong(2, staleClaimSeconds);
+                return statement.executeUpdate() == 1;
+            }
+        }
+        
+        try (Connection connection = shards.get(target).getConnection()) {
+            try (PreparedStatement statement = connection.prepareStatement(COPY_IDENTIFIER_SQL)) {
+                statement.setString(1, row.identifier());
+                statement.setLong(2, row.userId());
+                statement.setInt(3, row.shardId());
+                statement.setString(4, row.claimId());
+                statement.setTimestamp(5, row.createdAt());
+                statement.executeUpdate();
+            }
+            Long owner = queryLong(connection, IDENTIFIER_OWNER_SQL, row.identifier());
+            if (!row.userId().equals(owner)) {
+                throw new SQLException("Identifier is registered to user " + owner + " on shard " + target
+                        + " and to user " + row.userId() + " on shard " + source);
+            }
+        }
+        try (Connection connection = shards.get(source).getConnection();
+             PreparedStatement statement = connection.prepareStatement(DELETE_IDENTIFIER_SQL)) {
+            statement.setString(1, row.identifier());
+            statement.executeUpdate();
+        }
+        return true;
+    }
+    
+    private void rebalanceUsers(int shardId, Counts counts) {
+        long after = 0L;
+        List<UserRow> rows;
+        do {
+            rows = scanUsers(shardId, after, batchSize);
+            List<Registration> registrations = new ArrayList<>();
+            for (UserRow row : rows) {
+                after = row.id();
+                List<String> identifiers = IdentifierUtil.identifiers(row.email(), row.phoneNumber());
+                if (identifiers.isEmpty()) {
+                    continue;
+                }
+                // The home shard is chosen the same way as at signup
+                int target = shardRouter.shardFor(identifiers.get(0));
+                if (target == shardId) {
+                    for (String identifier : identifiers) {
+                        registrations.add(new Registration(identifier, row.id(), shardId));
+                    }
+                    continue;
+                }
+                try {
+                    int sessions = moveUser(row.id(), identifiers, shardId, target);
+                    if (sessions >= 0) {
+                        counts.users++;
+                        counts.sessions += sessions;
+                    }
+                } catch (SQLException e) {
+                    counts.failed++;
+                    log.error("Failed to move user {} from shard {} to {}", row.id(), shardId, target, e);
+                }
+            }
+            try {
+                counts.identifiers += register(registrations, REGISTER_MISSING_SQL);
+            } catch (SQLException e) {
+                counts.failed += registrations.size();
+                log.error("Failed to register {} identifiers of users on shard {}", registrations.size(), shardId, e);
+            }
+        } while (rows.size() == batchSize);
+    }
+    
+    // Returns the number of sessions moved, or -1 if the user was deleted meanwhile. The directory decides which
+    // copy is live: it is repointed only after the target copy commits, and the source copy is deleted after that.
+    // If repointing fails, the directory is pointed back and the target copy removed; if deleting the source copy
+    // fails, the move is rolled forward. Whatever a second failure leaves behind is finished by the next run.
+    private int moveUser(long userId, List<String> identifiers, int source, int target) throws SQLException {
+        if (isRegisteredOn(identifiers, userId, target)) {
+            // An earlier move repointed the directory but did not get to delete the source copy
+            return finishMove(userId, identifiers, source, target);
+        }
+        try (Connection sourceConnection = shards.get(source).getConnection();
+             Connection targetConnection = shards.get(target).getConnection()) {
+            sourceConnection.setAutoCommit(false);
+            targetConnection.setAutoCommit(false);
+            List<Object[]> sessions;
+            Object createdAt;
+            try {
+                List<Object[]> user = queryRows(sourceConnection, LOCK_USER_SQL, userId);
+                if (user.isEmpty()) {
+                    sourceConnection.rollback();
+                    return -1;
+                }
+                createdAt = user.get(0)[1];
+                sessions = queryRows(sourceConnection, LOCK_SESSIONS_SQL, userId);
+                
+                // A copy the directory doesn't point at is left over from a failed move and may be outdated
+                deleteCopy(targetConnection, userId, createdAt);
+                insertRows(targetConnection, INSERT_USER_SQL, user);
+                insertRows(targetConnection, INSERT_SESSION_SQL, sessions);
+                update(targetConnection, DELETE_FORWARD_SQL, userId);
+                long copied = countCopied(targetConnection, userId, createdAt, sessions);
+                if (copied != 1 + sessions.size()) {
+                    throw new SQLException("Ids of user " + userId + " or its sessions are taken on shard " + target);
+                }
+                targetConnection.commit();
+            } catch (SQLException | RuntimeException e) {
+                targetConnection.rollback();
+                sourceConnection.rollback();
+                throw e;
+            }
+            
+            // The source rows stay locked until the directory change is settled either way
+            try {
+                register(registrations(identifiers, userId, target), REGISTER_SQL);
+            } catch (SQLException | RuntimeException e) {
+                undoMove(userId, identifiers, source, target, targetConnection, createdAt);
+                sourceConnection.rollback();
+                throw e;
+            }
+            
+            try {
+                deleteSource(sourceConnection, userId, target);
+                sourceConnection.commit();
+            } catch (SQLException | RuntimeException e) {
+                log.warn("Failed to delete user {} from shard {} after moving it to shard {}; retrying", userId, source,
+                        target, e);
+                rollbackQuietly(sourceConnection);
+                finishMove(userId, identifiers, source, target);
+            }
+            return sessions.size();
+        }
+    }
+    
+    // Points the directory back at the source and drops the target copy, so the source is the only copy again
+    private void undoMove(long userId, List<String> identifiers, int source, int target, Connection targetConnection,
+                          Object createdAt) {
+        try {
+            register(registrations(identifiers, userId, source), REGISTER_SQL);
+            deleteCopy(targetConnection, userId, createdAt);
+            // Replaces any forwarding row the target copy removed, for tokens issued while the user lived there
+            forward(targetConnection, userId, source);
+            targetConnection.commit();
+        } catch (SQLException | RuntimeException e) {
+            // The next run sees the directory pointing at the target for some identifier and rolls forward
+            log.error("Failed to undo the move of user {} to shard {}; it is finished by the next run", userId,
+                    target, e);
+        }
+    }
+    
+    // Completes a move whose directory update went through: sessions created on the source in the meantime are
+    // copied over, every identifier is pointed at the target and the source copy is deleted
+    private int finishMove(long userId, List<String> identifiers, int source, int target) throws SQLException {
+        try (Connection sourceConnection = shards.get(source).getConnection();
+             Connection targetConnection = shards.get(target).getConnection()) {
+            sourceConnection.setAutoCommit(false);
+            try {
+                List<Object[]> user = queryRows(sourceConnection, LOCK_USER_SQL, userId);
+                if (user.isEmpty()) {
+                    sourceConnection.rollback();
+                    return -1;
+                }
+                if (countCopied(targetConnection, userId, user.get(0)[1], List.of()) != 1) {
+                    throw new SQLException("Directory points user " + userId + " at shard " + target
+                            + ", which does not hold it");
+                }
+                List<Object[]> sessions = queryRows(sourceConnection, LOCK_SESSIONS_SQL, userId);
+                insertRows(targetConnection, INSERT_SESSION_SQL, sessions);
+                register(registrations(identifiers, userId, target), REGISTER_SQL);
+                deleteSource(sourceConnection, userId, target);
+                sourceConnection.commit();
+                return sessions.size();
+            } catch (SQLException | RuntimeException e) {
+                rollbackQuietly(sourceConnection);
+                throw e;
+            }
+        }
+    }
+    
+    // Deletes the source copy and leaves the forwarding row in its place, in the same transaction
+    private static void deleteSource(Connection sourceConnection, long userId, int target) throws SQLException {
+        update(sourceConnection, DELETE_SESSIONS_SQL, userId);
+        update(sourceConnection, DELETE_USER_SQL, userId);
+        forward(sourceConnection, userId, target);
+    }
+    
+    private static void forward(Connection connection, long userId, int shardId) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(FORWARD_SQL)) {
+            statement.setLong(1, userId);
+            statement.setInt(2, shardId);
+            statement.executeUpdate();
+        }
+    }
+    
+    private void purgeForwards(int shardId) {
+        try (Connection connection = shards.get(shardId).getConnection();
+             PreparedStatement statement = connection.prepareStatement(PURGE_FORWARDS_SQL)) {
+            statement.setLong(1, tokenLifetimeMs / 1000);
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            log.error("Failed to purge forwarding rows on shard {}", shardId, e);
+        }
+    }
+    
+    private boolean isRegisteredOn(List<String> identifiers, long userId, int shardId) throws SQLException {
+        for (String identifier : identifiers) {
+            try (Connection connection = shards.get(shardRouter.shardFor(identifier)).getConnection();
+                 PreparedStatement statement = connection.prepareStatement(REGISTERED_SHARD_SQL)) {
+                statement.setString(1, identifier);
+                statement.setLong(2, userId);
+                try (ResultSet rs = statement.executeQuery()) {
+                    if (rs.next() && rs.getInt(1) == shardId) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+    
+    private static List<Registration> registrations(List<String> identifiers, long userId, int shardId) {
+        return identifiers.stream().map(identifier -> new Registration(identifier, userId, shardId)).toList();
+    }
+    
+    private static void deleteCopy(Connection connection, long userId, Object createdAt) throws SQLException {
+        try (PreparedStatement sessions = connection.prepareStatement(DELETE_COPIED_SESSIONS_SQL);
+             PreparedStatement user = connection.prepareStatement(DELETE_COPIED_USER_SQL)) {
+            sessions.setLong(1, userId);
+            sessions.setLong(2, userId);
+            sessions.setObject(3, createdAt);
+            sessions.executeUpdate();
+            user.setLong(1, userId);
+            user.setObject(2, createdAt);
+            user.executeUpdate();
+        }
+    }
+    
+    private static void rollbackQuietly(Connection connection) {
+        try {
+            connection.rollback();
+        } catch (SQLException e) {
+            log.warn("Rollback failed", e);
+        }
+    }
+    
+    // Writes directory rows on the shard each identifier hashes to and returns how many changed
+    private int register(List<Registration> registrations, String sql) throws SQLException {
+        Map<Integer, List<Registration>> byShard = registrations.stream()
+                .collect(Collectors.groupingBy(registration -> shardRouter.shardFor(registration.identifier())));
+        int changed = 0;
+        for (Map.Entry<Integer, List<Registration>> entry : byShard.entrySet()) {
+            try (Connection connection = shards.get(entry.getKey()).getConnection();
+                 PreparedStatement statement = connection.prepareStatement(sql)) {
+                for (Registration registration : entry.getValue()) {
+                    statement.setString(1, registration.identifier());
+                    statement.setLong(2, registration.userId());
+                    statement.setInt(3, registration.shardId());
+                    statement.addBatch();
+                }
+                for (int count : statement.executeBatch()) {
+                    changed += Math.max(count, 0);
+                }
+            }
+        }
+        return changed;
+    }
+    
+    private List<IdentifierRow> scanIdentifiers(int shardId, String after, int limit) {
+        List<IdentifierRow> rows = new ArrayList<>();
+        try (Connection connection = shards.get(shardId).getConnection();
+             PreparedStatement statement = connection.prepareStatement(SCAN_IDENTIFIERS_SQL)) {
+            statement.setString(1, after);
+            statement.setInt(2, limit);
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(new IdentifierRow(rs.getString("identifier"), rs.getObject("user_id", Long.class),
+                            rs.getInt("shard_id"), rs.getString("claim_id"), rs.getTimestamp("created_at")));
+                }
+            }
+        } catch (SQLException e) {
+            log.error("Failed to scan identifiers on shard {}", shardId, e);
+        }
+        return rows;
+    }
+    
+    private List<UserRow> scanUsers(int shardId, long after, int limit) {
+        List<UserRow> rows = new ArrayList<>();
+        try (Connection connection = shards.get(shardId).getConnection();
+             PreparedStatement statement = connection.prepareStatement(SCAN_USERS_SQL)) {
+            statement.setLong(1, after);
+            statement.setInt(2, limit);
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(new UserRow(rs.getLong("id"), rs.getString("email"), rs.getString("phone_number")));
+                }
+            }
+        } catch (SQLException e) {
+            log.error("Failed to scan users on shard {}", shardId, e);
+        }
+        return rows;
+    }
+    
+    private static Long queryLong(Connection connection, String sql, Object arg) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setObject(1, arg);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() ? rs.getObject(1, Long.class) : null;
+            }
+        }
+    }
+    
+    private static List<Object[]> queryRows(Connection connection, String sql, Object arg) throws SQLException {
+        List<Object[]> rows = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setObject(1, arg);
+            try (ResultSet rs = statement.executeQuery()) {
+                int columns = rs.getMetaData().getColumnCount();
+                while (rs.next()) {
+                    Object[] row = new Object[columns];
+                    for (int i = 0; i < columns; i++) {
+                        row[i] = rs.getObject(i + 1);
+                    }
+                    rows.add(row);
+                }
+            }
+        }
+        return rows;
+    }
+    
+    private static long countCopied(Connection connection, long userId, Object createdAt, List<Object[]> sessions)
+            throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(COUNT_COPIED_SQL)) {
+            statement.setLong(1, userId);
+            statement.setObject(2, createdAt);
+            statement.setLong(3, userId);
+            statement.setArray(4, connection.createArrayOf("bigint", sessions.stream().map(row -> row[0]).toArray()));
+            try (ResultSet rs = statement.executeQuery()) {
+                rs.next();
+                return rs.getLong(1);
+            }
+        }
+    }
+    
+    private static void insertRows(Connection connection, String sql, List<Object[]> rows) throws SQLException {
+        if (rows.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (Object[] row : rows) {
+                for (int i = 0; i < row.length; i++) {
+                    statement.setObject(i + 1, row[i]);
+                }
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+    
+    private static void update(Connection connection, String sql, Object arg) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setObject(1, arg);
+            statement.executeUpdate();
+        }
+    }
+    
+    private record IdentifierRow(String identifier, Long userId, int shardId, String claimId,
+                                 Timestamp createdAt) {
+    }
+    
+    private record UserRow(long id, String email, String phoneNumber) {
+    }
+    
+    private record Registration(String identifier, long userId, int shardId) {
+    }
+    
+    private static final class Counts {
+        private int identifiers;
+        private int users;
+        private int sessions;
+        private int failed;
+    }
+}
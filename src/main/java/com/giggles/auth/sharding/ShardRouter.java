@@ -0,0 +1,105 @@
+package com.giggles.auth.sharding;
+
+import com.giggles.auth.config.ShardingProperties;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+// Decides which shard a user lives on and runs work there. With sharding disabled every method
+// degenerates to running the work once against the single database, so callers need no branches.
+@Slf4j
+public class ShardRouter {
+    
+    private final boolean enabled;
+    private final int idStride;
+    private final int defaultShard;
+    private final List<Integer> shardIds;
+    private final ConsistentHashRing ring;
+    private final ConsistentHashRing previousRing;
+    
+    public ShardRouter(ShardingProperties properties) {
+        this.enabled = properties.isEnabled();
+        this.idStride = properties.getIdStride();
+        this.defaultShard = properties.getDefaultShard();
+        this.shardIds = properties.getShards().stream().map(ShardingProperties.Shard::getId).sorted().toList();
+        if (enabled) {
+            for (int shardId : shardIds) {
+                if (shardId < 0 || shardId >= idStride) {
+                    throw new IllegalStateException("Shard id " + shardId + " is outside [0, sharding.id-stride)");
+                }
+            }
+            this.ring = new ConsistentHashRing(shardIds, properties.getVirtualNodes());
+            this.previousRing = properties.getPreviousRing().isEmpty()
+                    ? null : new ConsistentHashRing(properties.getPreviousRing(), properties.getVirtualNodes());
+        } else {
+            this.ring = null;
+            this.previousRing = null;
+        }
+    }
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    public List<Integer> getShardIds() {
+        return shardIds;
+    }
+    
+    // Shard that owns a login identifier (see IdentifierUtil) under the current ring
+    public int shardFor(String identifier) {
+        return enabled ? ring.shardFor(identifier) : defaultShard;
+    }
+    
+    // Shard that owned the identifier before the last topology change, or null if that is the same shard
+    public Integer previousShardFor(String identifier) {
+        if (previousRing == null) {
+            return null;
+        }
+        int previous = previousRing.shardFor(identifier);
+        return previous == ring.shardFor(identifier) ? null : previous;
+    }
+    
+    // Shard a row was created on; rows keep their id when the rebalancer moves them
+    public int shardOfId(long id) {
+        return enabled ? (int) (id % idStride) : defaultShard;
+    }
+    
+    // Shard the current thread is routed to, or null when sharding is disabled
+    public Integer currentShard() {
+        if (!enabled) {
+            return null;
+        }
+        Integer current = ShardContext.current();
+        return current != null ? current : defaultShard;
+    }
+    
+    public <T> T callOn(Integer shardId, Supplier<T> action) {
+        if (!enabled || shardId == null) {
+            return action.get();
+        }
+        return ShardContext.callOn(shardId, action);
+    }
+    
+    public void runOn(Integer shardId, Runnable action) {
+        callOn(shardId, () -> {
+            action.run();
+            return null;
+        });
+    }
+    
+    // Runs the action once per shard; a failing shard is logged and doesn't stop the others
+    public void forEachShard(Runnable action) {
+        if (!enabled) {
+            action.run();
+            return;
+        }
+        for (int shardId : shardIds) {
+            try {
+                runOn(shardId, action);
+            } catch (RuntimeException e) {
+                log.error("Failed to run task on shard {}", shardId, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.giggles.auth.sharding;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+// Routes each connection request to the shard in ShardContext, or the default shard when none is set
+@Slf4j
+public class ShardRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+    
+    private final Map<Integer, DataSource> shards;
+    
+    public ShardRoutingDataSource(Map<Integer, DataSource> shards, int defaultShard) {
+        this.shards = Collections.unmodifiableMap(shards);
+        setTargetDataSources(new HashMap<>(shards));
+        setDefaultTargetDataSource(shards.get(defaultShard));
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+    
+    public Map<Integer, DataSource> getShards() {
+        return shards;
+    }
+    
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return ShardContext.current();
+    }
+    
+    @Override
+    public void close() {
+        for (Map.Entry<Integer, DataSource> shard : shards.entrySet()) {
+            if (shard.getValue() instanceof AutoCloseable closeable) {
+                try {
+                    closeable.close();
+                } catch (Exception e) {
+                    log.warn("Failed to close data source of shard {}", shard.getKey(), e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.giggles.auth.sharding;
+
+import com.giggles.auth.exception.AuthenticationException;
+import com.giggles.auth.exception.ErrorCode;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.HttpStatus;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+// Maps login identifiers to the shard holding their user (table user_identifiers, one row per identifier
+// on the shard the identifier hashes to). Signup claims every identifier of the new user before creating
+// it and completes the claims with the user id after commit, so an identifier can't be taken twice even
+// when a user's email and phone number hash to different shards. A claim whose completion failed is
+// completed later from the user row by whichever claim or resolve runs into it. Also reads the forwarding rows
+// ShardRebalancer leaves behind for moved users (table moved_users). Only used when sharding is enabled.
+@Component
+@Slf4j
+public class UserDirectory {
+    
+    private static final String CLAIM_SQL =
+            "INSERT INTO user_identifiers (identifier, shard_id, claim_id, created_at) VALUES (?, ?, ?, now()) " +
+            "ON CONFLICT (identifier) DO NOTHING";
+    
+    // Only succeeds if the claim found earlier is still there untouched
+    private static final String TAKE_OVER_SQL =
+            "UPDATE user_identifiers SET shard_id = ?, claim_id = ?, created_at = now() " +
+            "WHERE identifier = ? AND claim_id = ? AND user_id IS NULL";
+    
+    private static final String COMPLETE_SQL =
+            "UPDATE user_identifiers SET user_id = ? WHERE identifier = ? AND claim_id = ?";
+    
+    private static final String RELEASE_SQL =
+            "DELETE FROM user_identifiers WHERE identifier = ? AND claim_id = ? AND user_id IS NULL";
+    
+    private static final String ENTRY_SQL =
+            "SELECT user_id, shard_id, claim_id, created_at < now() - make_interval(secs => ?) AS stale " +
+            "FROM user_identifiers WHERE identifier = ?";
+    
+    private static final String USER_BY_EMAIL_SQL =
+            "SELECT id FROM users WHERE email = ? AND deleted = false";
+    
+    private static final String USER_BY_PHONE_NUMBER_SQL =
+            "SELECT id FROM users WHERE phone_number = ? AND deleted = false";
+    
+    private static final String EXISTS_SQL =
+            "SELECT EXISTS (SELECT 1 FROM user_identifiers WHERE identifier = ?)";
+    
+    private static final String REMOVE_USERS_SQL =
+            "DELETE FROM user_identifiers WHERE user_id = ANY(?)";
+    
+    private static final String MOVED_TO_SQL =
+            "SELECT shard_id FROM moved_users WHERE user_id = ?";
+    
+    private final ShardRouter shardRouter;
+    private final JdbcTemplate jdbcTemplate;
+    
+    @Value("${sharding.stale-claim-seconds:300}")
+    private long staleClaimSeconds;
+    
+    @Autowired
+    public UserDirectory(ShardRouter shardRouter, JdbcTemplate jdbcTemplate) {
+        this.shardRouter = shardRouter;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+    
+    // Claims all identifiers for a user that will live on homeShard; throws 409 if any is already taken
+    public Claim claim(Collection<String> identifiers, int homeShard) {
+        Claim claim = new Claim(UUID.randomUUID().toString(), new ArrayList<>());
+        for (String identifier : identifiers) {
+            boolean claimed = claimIdentifier(identifier, homeShard, claim.id());
+            // While rebalancing, the identifier may still be registered on the shard of the previous ring
+            Integer previousShard = shardRouter.previousShardFor(identifier);
+            boolean takenBeforeMove = previousShard != null && Boolean.TRUE.equals(shardRouter.callOn(previousShard,
+                    () -> jdbcTemplate.queryForObject(EXISTS_SQL, Boolean.class, identifier)));
+            if (claimed) {
+                claim.identifiers().add(identifier);
+            }
+            if (!claimed || takenBeforeMove) {
+                release(claim);
+                throw new AuthenticationException(
+                        HttpStatus.SC_CONFLICT,
+                        ErrorCode.INVALID_CREDENTIALS,
+                        "User already exists with this " + (identifier.startsWith("email:") ? "email" : "phone number")
+                                + ". Please login."
+                );
+            }
+        }
+        return claim;
+    }
+    
+    public void complete(Claim claim, long userId) {
+        for (String identifier : claim.identifiers()) {
+            shardRouter.callOn(shardRouter.shardFor(identifier),
+                    () -> jdbcTemplate.update(COMPLETE_SQL, userId, identifier, claim.id()));
+        }
+    }
+    
+    public void release(Claim claim) {
+        for (String identifier : claim.identifiers()) {
+            try {
+                shardRouter.callOn(shardRouter.shardFor(identifier),
+                        () -> jdbcTemplate.update(RELEASE_SQL, identifier, claim.id()));
+            } catch (RuntimeException e) {
+                log.warn("Failed to release claim on {}; it expires after {} s", identifier, staleClaimSeconds, e);
+            }
+        }
+    }
+    
+    public Optional<Location> resolve(String identifier) {
+        Optional<Location> location = find(shardRouter.shardFor(identifier), identifier);
+        Integer previousShard = shardRouter.previousShardFor(identifier);
+        if (location.isEmpty() && previousShard != null) {
+            location = find(previousShard, identifier);
+        }
+        return location;
+    }
+    
+    // Shard the rebalancer moved the user to from the given shard, if it did
+    public Optional<Integer> movedTo(int shard, long userId) {
+        return shardRouter.callOn(shard,
+                () -> jdbcTemplate.queryForList(MOVED_TO_SQL, Integer.class, userId).stream().findFirst());
+    }
+    
+    // Drops the identifiers of users that no longer exist, e.g. after archival
+    public void removeUsers(List<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        shardRouter.forEachShard(() -> jdbcTemplate.update(REMOVE_USERS_SQL, (Object) userIds.toArray(new Long[0])));
+    }
+    
+    // A stale claim (its signup died between claim and completion) is taken over after stale-claim-seconds,
+    // unless that signup did create the user and only the completion was lost
+    private boolean claimIdentifier(String identifier, int homeShard, String claimId) {
+        int shard = shardRouter.shardFor(identifier);
+        if (shardRouter.callOn(shard, () -> jdbcTemplate.update(CLAIM_SQL, identifier, homeShard, claimId)) == 1) {
+            return true;
+        }
+        Optional<Entry> entry = shardRouter.callOn(shard, () -> findEntry(identifier));
+        if (entry.isEmpty()) {
+            // Released in the meantime
+            return shardRouter.callOn(shard, () -> jdbcTemplate.update(CLAIM_SQL, identifier, homeShard, claimId)) == 1;
+        }
+        Entry existing = entry.get();
+        if (existing.userId() != null || !existing.stale() || repair(shard, identifier, existing).isPresent()) {
+            return false;
+        }
+        return shardRouter.callOn(shard, () -> jdbcTemplate.update(
+                TAKE_OVER_SQL, homeShard, claimId, identifier, existing.claimId())) == 1;
+    }
+    
+    private Optional<Location> find(int shard, String identifier) {
+        Optional<Entry> entry = shardRouter.callOn(shard, () -> findEntry(identifier));
+        if (entry.isEmpty()) {
+            return Optional.empty();
+        }
+        if (entry.get().userId() != null) {
+            return Optional.of(new Location(entry.get().userId(), entry.get().shardId()));
+        }
+        // Either a signup in progress or one whose completion failed after its user was committed
+        return repair(shard, identifier, entry.get());
+    }
+    
+    // Completes a claim from the user row on the claim's home shard, if its signup committed one
+    private Optional<Location> repair(int shard, String identifier, Entry claim) {
+        Optional<Long> userId = shardRouter.callOn(claim.shardId(), () -> findUserId(identifier));
+        if (userId.isEmpty()) {
+            return Optional.empty();
+        }
+        shardRouter.callOn(shard, () -> jdbcTemplate.update(COMPLETE_SQL, userId.get(), identifier, claim.claimId()));
+        log.info("Completed directory claim on {} for user {} left open by a failed signup", identifier, userId.get());
+        return Optional.of(new Location(userId.get(), claim.shardId()));
+    }
+    
+    private Optional<Entry> findEntry(String identifier) {
+        return jdbcTemplate.query(ENTRY_SQL, (rs, rowNum) -> new Entry(rs.getObject("user_id", Long.class),
+                rs.getInt("shard_id"), rs.getString("claim_id"), rs.getBoolean("stale")),
+                staleClaimSeconds, identifier).stream().findFirst();
+    }
+    
+    private Optional<Long> findUserId(String identifier) {
+        String sql = identifier.startsWith("email:") ? USER_BY_EMAIL_SQL : USER_BY_PHONE_NUMBER_SQL;
+        String value = identifier.substring(identifier.indexOf(':') + 1);
+        return jdbcTemplate.queryForList(sql, Long.class, value).stream().findFirst();
+    }
+    
+    public record Claim(String id, List<String> identifiers) {
+    }
+    
+    private record Entry(Long userId, int shardId, String claimId, boolean stale) {
+    }
+    
+    public record Location(long userId, int shardId) {
+    }
+}
@@ -0,0 +1,144 @@
+package com.giggles.auth.util;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.giggles.auth.enums.UserRole;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.MalformedJwtException;
+import io.jsonwebtoken.security.SignatureException;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Base64;
+
+// Issues and verifies compact-profile tokens: HS256 JWTs with a fixed header and the payload
+// {"u":<userId>,"r":<role code>,"jti":"...","exp":<seconds>} plus "sh":<shard id> when sharded. They stay standard JWTs, but verification
+// skips the generic JOSE machinery: the header is compared as a constant, the MAC runs over one ASCII copy of
+// the token, and only the payload and signature are base64-decoded before a streaming parser reads the claims
+// without building a claims map.
+public final class CompactTokenCodec {
+    
+    // base64url({"alg":"HS256"})
+    public static final String HEADER = "eyJhbGciOiJIUzI1NiJ9";
+    
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+    
+    private final SecretKeySpec key;
+    private final ThreadLocal<Mac> macs;
+    
+    public CompactTokenCodec(byte[] secret) {
+        this.key = new SecretKeySpec(secret, ALGORITHM);
+        this.macs = ThreadLocal.withInitial(this::newMac);
+    }
+    
+    public static boolean isCompact(String token) {
+        return token.startsWith(HEADER) && token.length() > HEADER.length() && token.charAt(HEADER.length()) == '.';
+    }
+    
+    public String encode(long userId, UserRole role, String tokenId, long expiresAtSeconds, Integer shardId) {
+        String payload = "{\"u\":" + userId + ",\"r\":" + role.getCode() + ",\"jti\":\"" + tokenId
+                + "\",\"exp\":" + expiresAtSeconds + (shardId != null ? ",\"sh\":" + shardId : "") + "}";
+        String signingInput = HEADER + '.' + ENCODER.encodeToString(payload.getBytes(StandardCharsets.UTF_8));
+        byte[] signature = macs.get().doFinal(signingInput.getBytes(StandardCharsets.US_ASCII));
+        return signingInput + '.' + ENCODER.encodeToString(signature);
+    }
+    
+    public TokenClaims decode(String token) {
+        if (!isCompact(token)) {
+            throw new MalformedJwtException("Not a compact token");
+        }
+        int payloadStart = HEADER.length() + 1;
+        int signatureStart = token.indexOf('.', payloadStart) + 1;
+        if (signatureStart == 0 || token.indexOf('.', signatureStart) >= 0) {
+            throw new MalformedJwtException("Compact token must have three segments");
+        }
+        
+        byte[] bytes = token.getBytes(StandardCharsets.US_ASCII);
+        Mac mac = macs.get();
+        mac.update(bytes, 0, signatureStart - 1);
+        byte[] expected = mac.doFinal();
+        byte[] actual;
+        byte[] payload;
+        try {
+            actual = decode(bytes, signatureStart, bytes.length);
+            payload = decode(bytes, payloadStart, signatureStart - 1);
+        } catch (IllegalArgumentException e) {
+            throw new MalformedJwtException("Compact token is not valid base64url", e);
+        }
+        if (!MessageDigest.isEqual(expected, actual)) {
+            throw new SignatureException("Compact token signature does not match");
+        }
+        
+        TokenClaims claims = parsePayload(payload);
+        if (claims.expiresAt() <= System.currentTimeMillis()) {
+            throw new ExpiredJwtException(null, null, "Compact token expired");
+        }
+        return claims;
+    }
+    
+    private static TokenClaims parsePayload(byte[] payload) {
+        Long userId = null;
+        Integer roleCode = null;
+        String tokenId = null;
+        long expiresAtSeconds = -1;
+        Integer shardId = null;
+        try (JsonParser parser = JSON_FACTORY.createParser(payload)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new MalformedJwtException("Compact token payload is not an object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "u" -> userId = parser.getLongValue();
+                    case "r" -> roleCode = parser.getIntValue();
+                    case "jti" -> tokenId = parser.getText();
+                    case "exp" -> expiresAtSeconds = parser.getLongValue();
+                    case "sh" -> shardId = parser.getIntValue();
+                    default -> {
+                        if (value.isStructStart()) {
+                            parser.skipChildren();
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new MalformedJwtException("Compact token payload is not valid JSON", e);
+        }
+        if (userId == null || roleCode == null || expiresAtSeconds < 0) {
+            throw new MalformedJwtException("Compact token payload is missing required claims");
+        }
+        try {
+            return new TokenClaims(userId, UserRole.fromCode(roleCode).name(), null, tokenId, expiresAtSeconds * 1000,
+                    shardId);
+        } catch (IllegalArgumentException e) {
+            throw new MalformedJwtException(e.getMessage(), e);
+        }
+    }
+    
+    private static byte[] decode(byte[] bytes, int from, int to) {
+        ByteBuffer decoded = DECODER.decode(ByteBuffer.wrap(bytes, from, to - from));
+        byte[] result = new byte[decoded.remaining()];
+        decoded.get(result);
+        return result;
+    }
+    
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.giggles.auth.util;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.TaskScheduler;
+
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.PublicKey;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Holds Google's securetoken signing certificates in memory and refreshes them in the background
+// shortly before the Cache-Control max-age runs out, so verification never waits on the network.
+// An unknown key ID triggers at most one on-demand refresh per interval; between refreshes it is rejected at once.
+@Slf4j
+public class FirebasePublicKeyCache {
+    
+    private static final Pattern MAX_AGE = Pattern.compile("max-age=(\\d+)");
+    private static final Duration DEFAULT_MAX_AGE = Duration.ofHours(1);
+    private static final Duration RETRY_DELAY = Duration.ofSeconds(30);
+    
+    private final URI certificatesUri;
+    private final ObjectMapper objectMapper;
+    private final TaskScheduler taskScheduler;
+    private final long onDemandRefreshIntervalMs;
+    private final HttpClient httpClient;
+    private final AtomicLong nextOnDemandRefreshAt = new AtomicLong();
+    
+    private volatile Map<String, PublicKey> keys = Map.of();
+    
+    public FirebasePublicKeyCache(String certificatesUrl, ObjectMapper objectMapper, TaskScheduler taskScheduler,
+                                  Duration onDemandRefreshInterval) {
+        this.certificatesUri = URI.create(certificatesUrl);
+        this.objectMapper = objectMapper;
+        this.taskScheduler = taskScheduler;
+        this.onDemandRefreshIntervalMs = onDemandRefreshInterval.toMillis();
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+    }
+    
+    public void start() {
+        refreshAndReschedule();
+    }
+    
+    public PublicKey getKey(String keyId) {
+        PublicKey key = keys.get(keyId);
+        return key != null ? key : refreshOnDemand(keyId);
+    }
+    
+    // Google may rotate keys before our max-age runs out. Only the caller that wins the interval slot fetches;
+    // every other unknown key ID fails fast instead of queueing behind the fetch.
+    private PublicKey refreshOnDemand(String keyId) {
+        long now = System.currentTimeMillis();
+        long allowedAt = nextOnDemandRefreshAt.get();
+        if (now < allowedAt || !nextOnDemandRefreshAt.compareAndSet(allowedAt, now + onDemandRefreshIntervalMs)) {
+            return null;
+        }
+        log.info("Unknown Firebase key ID {}. Refreshing certificates on demand.", keyId);
+        try {
+            refresh();
+        } catch (Exception e) {
+            log.warn("On-demand Firebase certificate refresh failed: {}", e.getMessage());
+            return null;
+        }
+        return keys.get(keyId);
+    }
+    
+    private void refreshAndReschedule() {
+        Duration delay;
+        try {
+            Duration maxAge = refresh();
+            delay = maxAge.multipliedBy(9).dividedBy(10);
+        } catch (Exception e) {
+            log.error("Failed to refresh Firebase certificates. Keeping {} cached keys: {}", keys.size(), e.getMessage());
+            delay = RETRY_DELAY;
+        }
+        taskScheduler.schedule(this::refreshAndReschedule, Instant.now().plus(delay));
+    }
+    
+    private synchronized Duration refresh() {
+        try {
+            HttpRequest request = HttpRequest.newBuilder(certificatesUri)
+                    .timeout(Duration.ofSeconds(10))
+                    .GET()
+                    .build();
+            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("Certificate endpoint returned HTTP " + response.statusCode());
+            }
+            
+            Map<String, String> certificates = objectMapper.readValue(response.body(), new TypeReference<>() {
+            });
+            CertificateFactory factory = CertificateFactory.getInstance("X.509");
+            Map<String, PublicKey> parsed = new HashMap<>();
+            for (Map.Entry<String, String> entry : certificates.entrySet()) {
+                X509Certificate certificate = (X509Certificate) factory.generateCertificate(
+                        new ByteArrayInputStream(entry.getValue().getBytes(StandardCharsets.UTF_8)));
+                parsed.put(entry.getKey(), certificate.getPublicKey());
+            }
+            keys = Map.copyOf(parsed);
+            
+            Duration maxAge = response.headers().firstValue("Cache-Control")
+                    .map(this::parseMaxAge)
+                    .orElse(DEFAULT_MAX_AGE);
+            log.info("Loaded {} Firebase signing keys, valid for {}s", parsed.size(), maxAge.toSeconds());
+            return maxAge;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while fetching Firebase certificates", e);
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to fetch Firebase certificates", e);
+        }
+    }
+    
+    private Duration parseMaxAge(String cacheControl) {
+        Matcher matcher = MAX_AGE.matcher(cacheControl);
+        return matcher.find() ? Duration.ofSeconds(Long.parseLong(matcher.group(1))) : DEFAULT_MAX_AGE;
+    }
+}
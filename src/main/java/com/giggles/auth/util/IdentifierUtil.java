@@ -0,0 +1,46 @@
+package com.giggles.auth.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Login identifiers as keyed in the user directory and the shard ring. Values are used exactly as stored in
+// users.email and users.phone_number, the way signup and login query them and the unique indexes compare them,
+// so a sharded deployment accepts and rejects the same identifiers as a single database.
+public final class IdentifierUtil {
+    
+    private IdentifierUtil() {
+    }
+    
+    public static String emailIdentifier(String email) {
+        return isPresent(email) ? "email:" + email : null;
+    }
+    
+    public static String phoneIdentifier(String phoneNumber) {
+        return isPresent(phoneNumber) ? "phone:" + phoneNumber : null;
+    }
+    
+    // Email wins over phone number, mirroring the lookup order used by login
+    public static String primaryIdentifier(String email, String phoneNumber) {
+        String emailIdentifier = emailIdentifier(email);
+        return emailIdentifier != null ? emailIdentifier : phoneIdentifier(phoneNumber);
+    }
+    
+    // Every identifier a user can log in with, in lookup order
+    public static List<String> identifiers(String email, String phoneNumber) {
+        List<String> identifiers = new ArrayList<>(2);
+        String emailIdentifier = emailIdentifier(email);
+        if (emailIdentifier != null) {
+            identifiers.add(emailIdentifier);
+        }
+        String phoneIdentifier = phoneIdentifier(phoneNumber);
+        if (phoneIdentifier != null) {
+            identifiers.add(phoneIdentifier);
+        }
+        return identifiers;
+    }
+    
+    // Same presence test signup and login apply before querying by a field
+    private static boolean isPresent(String value) {
+        return value != null && !value.trim().isEmpty();
+    }
+}
@@ -1,21 +1,33 @@
 package com.giggles.auth.util;
 
+import com.giggles.auth.enums.UserRole;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
 import java.time.LocalDateTime;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
 
+// jwt.profile selects the format of newly issued tokens:
+//  standard - userId/phoneNumber/role claims, subject and issuer, signed with the strongest HMAC for the key
+//  compact  - short claims, numeric role code and no PII, always HS256 (see CompactTokenCodec)
+// Tokens of either profile are accepted regardless of the setting, so switching profiles doesn't log anyone out.
 @Component
 public class JwtUtil {
     
+    private static final SecureRandom RANDOM = new SecureRandom();
+    
     @Value("${jwt.secret}")
     private String secret;
     
@@ -25,41 +37,73 @@ public class JwtUtil {
     @Value("${jwt.issuer}")
     private String issuer;
     
-    private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+    @Value("${jwt.profile:standard}")
+    private String profile;
+    
+    private SecretKey signingKey;
+    private JwtParser parser;
+    private CompactTokenCodec compactTokenCodec;
+    
+    @PostConstruct
+    void init() {
+        byte[] secretBytes = secret.getBytes(StandardCharsets.UTF_8);
+        signingKey = Keys.hmacShaKeyFor(secretBytes);
+        parser = Jwts.parser().verifyWith(signingKey).build();
+        compactTokenCodec = new CompactTokenCodec(secretBytes);
     }
     
     public String generateToken(Long userId, String phoneNumber, String role) {
+        return generateToken(userId, phoneNumber, role, null);
+    }
+    
+    // shardId is the shard the user's session is stored on, so requests can be routed without a lookup
+    public String generateToken(Long userId, String phoneNumber, String role, Integer shardId) {
+        Date now = new Date();
+        Date expiryDate = new Date(now.getTime() + expiration);
+        
+        if ("compact".equals(profile)) {
+            return compactTokenCodec.encode(userId, UserRole.valueOf(role), newCompactTokenId(),
+                    expiryDate.getTime() / 1000, shardId);
+        }
+        
         Map<String, Object> claims = new HashMap<>();
         claims.put("userId", userId);
         claims.put("phoneNumber", phoneNumber);
         claims.put("role", role);
+        if (shardId != null) {
+            claims.put("sh", shardId);
+        }
         
-        Date now = new Date();
-        Date expiryDate = new Date(now.getTime() + expiration);
-        
+        // The jti keeps tokens unique even when one user logs in twice within the same second
         return Jwts.builder()
                 .claims(claims)
+                .id(UUID.randomUUID().toString())
                 .subject(phoneNumber)
                 .issuer(issuer)
                 .issuedAt(now)
                 .expiration(expiryDate)
-                .signWith(getSigningKey())
+                .signWith(signingKey)
                 .compact();
     }
     
+    // Verifies the signature and expiry of a token of either profile; throws JwtException if it is invalid
+    public TokenClaims parseToken(String token) {
+        if (CompactTokenCodec.isCompact(token)) {
+            return compactTokenCodec.decode(token);
+        }
+        Claims claims = extractClaims(token);
+        return new TokenClaims(claims.get("userId", Long.class), claims.get("role", String.class),
+                claims.get("phoneNumber", String.class), claims.getId(), claims.getExpiration().getTime(),
+                claims.get("sh", Integer.class));
+    }
+    
     public Claims extractClaims(String token) {
-        return Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+        return parser.parseSignedClaims(token).getPayload();
     }
     
     public boolean validateToken(String token) {
         try {
-            Claims claims = extractClaims(token);
-            return !claims.getExpiration().before(new Date());
+            return parseToken(token).expiresAt() > System.currentTimeMillis();
         } catch (Exception e) {
             return false;
         }
@@ -70,18 +114,22 @@ public class JwtUtil {
     }
     
     public Long getUserIdFromToken(String token) {
-        Claims claims = extractClaims(token);
-        return claims.get("userId", Long.class);
+        return parseToken(token).userId();
     }
     
+    // Null for compact tokens, which carry no PII
     public String getPhoneNumberFromToken(String token) {
-        Claims claims = extractClaims(token);
-        return claims.get("phoneNumber", String.class);
+        return parseToken(token).phoneNumber();
     }
     
     public String getRoleFromToken(String token) {
-        Claims claims = extractClaims(token);
-        return claims.get("role", String.class);
+        return parseToken(token).role();
+    }
+    
+    // 128 random bits, base64url: 22 characters instead of a 36-character UUID
+    private static String newCompactTokenId() {
+        byte[] bytes = new byte[16];
+        RANDOM.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
     }
 }
-
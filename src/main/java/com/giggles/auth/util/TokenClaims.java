@@ -0,0 +1,6 @@
+package com.giggles.auth.util;
+
+// Verified contents of an auth token, independent of the token profile it was issued with.
+// phoneNumber is null for compact tokens, which carry no PII; shardId is null when sharding is disabled.
+public record TokenClaims(Long userId, String role, String phoneNumber, String tokenId, long expiresAt, Integer shardId) {
+}
@@ -0,0 +1,20 @@
+-- Uniqueness among live users is enforced by the partial indexes from V9 from here on. Dropping a
+-- constraint only takes a brief lock. Databases that ran the earlier V4 have no such constraints left.
+-- Databases baselined from ddl-auto=update carry Hibernate-generated constraint names, so look them up.
+
+DO $$
+DECLARE
+    constraint_name TEXT;
+BEGIN
+    FOR constraint_name IN
+        SELECT c.conname
+        FROM pg_constraint c
+        JOIN pg_attribute a ON a.attrelid = c.conrelid AND a.attnum = c.conkey[1]
+        WHERE c.conrelid = 'users'::regclass
+          AND c.contype = 'u'
+          AND array_length(c.conkey, 1) = 1
+          AND a.attname IN ('email', 'phone_number')
+    LOOP
+        EXECUTE format('ALTER TABLE users DROP CONSTRAINT %I', constraint_name);
+    END LOOP;
+END $$;
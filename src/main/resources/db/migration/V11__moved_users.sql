@@ -0,0 +1,10 @@
+-- Forwarding rows ShardRebalancer leaves on the shard a user moved away from. Tokens name the shard their
+-- session was created on, so a token issued before the move finds its session through this row instead of
+-- being looked up on every shard. Rows older than the token lifetime are purged by the next rebalance.
+
+CREATE TABLE moved_users (
+    user_id  BIGINT       NOT NULL,
+    shard_id INTEGER      NOT NULL,
+    moved_at TIMESTAMP(6) NOT NULL,
+    CONSTRAINT pk_moved_users PRIMARY KEY (user_id)
+);
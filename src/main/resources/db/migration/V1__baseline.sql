@@ -0,0 +1,37 @@
+-- Baseline schema previously managed by hibernate ddl-auto=update.
+-- Existing databases are baselined at this version (spring.flyway.baseline-on-migrate).
+
+CREATE TABLE users (
+    id             BIGSERIAL    NOT NULL,
+    created_at     TIMESTAMP(6) NOT NULL,
+    updated_at     TIMESTAMP(6),
+    deleted        BOOLEAN      NOT NULL,
+    name           VARCHAR(255),
+    email          VARCHAR(255),
+    phone_number   VARCHAR(255),
+    address        VARCHAR(255),
+    password       VARCHAR(255) NOT NULL,
+    role           VARCHAR(255) NOT NULL CHECK (role IN ('USER', 'ADMIN')),
+    session_type   VARCHAR(255) NOT NULL CHECK (session_type IN ('SINGLE', 'MULTI')),
+    login_attempts INTEGER,
+    is_locked      BOOLEAN,
+    CONSTRAINT pk_users PRIMARY KEY (id),
+    CONSTRAINT uk_users_email UNIQUE (email),
+    CONSTRAINT uk_users_phone_number UNIQUE (phone_number)
+);
+
+CREATE TABLE user_sessions (
+    id         BIGSERIAL     NOT NULL,
+    created_at TIMESTAMP(6)  NOT NULL,
+    updated_at TIMESTAMP(6),
+    deleted    BOOLEAN       NOT NULL,
+    user_id    BIGINT        NOT NULL,
+    token      VARCHAR(2000) NOT NULL,
+    expiry     TIMESTAMP(6)  NOT NULL,
+    status     VARCHAR(255)  NOT NULL CHECK (status IN ('VALID', 'INVALID', 'EXPIRED')),
+    ip_address VARCHAR(255),
+    user_agent VARCHAR(255),
+    CONSTRAINT pk_user_sessions PRIMARY KEY (id),
+    CONSTRAINT uk_user_sessions_token UNIQUE (token),
+    CONSTRAINT fk_user_sessions_user FOREIGN KEY (user_id) REFERENCES users (id)
+);
@@ -0,0 +1,6 @@
+ALTER TABLE user_sessions ADD COLUMN last_seen_at TIMESTAMP(6);
+
+-- Serves the idle-session expiry sweep, which only looks at valid sessions
+CREATE INDEX idx_user_sessions_valid_activity
+    ON user_sessions ((COALESCE(last_seen_at, created_at)))
+    WHERE status = 'VALID';
@@ -0,0 +1,7 @@
+-- Keyset-paginated admin queries filter on these columns and walk user_sessions in id order.
+-- Built CONCURRENTLY so large session tables stay writable; Flyway runs this script outside a transaction.
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_user_sessions_status_id ON user_sessions (status, id);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_user_sessions_expiry ON user_sessions (expiry);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_user_sessions_ip_address ON user_sessions (ip_address, id);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_user_sessions_user_agent ON user_sessions (user_agent text_pattern_ops);
@@ -0,0 +1,41 @@
+-- Email and phone number only need to be unique among live users. The partial unique indexes that
+-- replace the full unique constraints, and the indexes on soft-deleted rows, are built CONCURRENTLY
+-- in V9 and the old constraints are dropped in V10, so the users table stays writable throughout.
+
+-- Cold storage for soft-deleted rows moved out by SoftDeleteArchiver. No unique constraints or
+-- foreign keys, so archived rows never conflict with live ones.
+CREATE TABLE users_archive (
+    id             BIGINT       NOT NULL,
+    created_at     TIMESTAMP(6) NOT NULL,
+    updated_at     TIMESTAMP(6),
+    deleted        BOOLEAN      NOT NULL,
+    name           VARCHAR(255),
+    email          VARCHAR(255),
+    phone_number   VARCHAR(255),
+    address        VARCHAR(255),
+    password       VARCHAR(255) NOT NULL,
+    role           VARCHAR(255) NOT NULL,
+    session_type   VARCHAR(255) NOT NULL,
+    login_attempts INTEGER,
+    is_locked      BOOLEAN,
+    archived_at    TIMESTAMP(6) NOT NULL,
+    CONSTRAINT pk_users_archive PRIMARY KEY (id)
+);
+
+CREATE TABLE user_sessions_archive (
+    id           BIGINT        NOT NULL,
+    created_at   TIMESTAMP(6)  NOT NULL,
+    updated_at   TIMESTAMP(6),
+    deleted      BOOLEAN       NOT NULL,
+    user_id      BIGINT        NOT NULL,
+    token        VARCHAR(2000) NOT NULL,
+    expiry       TIMESTAMP(6)  NOT NULL,
+    status       VARCHAR(255)  NOT NULL,
+    ip_address   VARCHAR(255),
+    user_agent   VARCHAR(255),
+    last_seen_at TIMESTAMP(6),
+    archived_at  TIMESTAMP(6)  NOT NULL,
+    CONSTRAINT pk_user_sessions_archive PRIMARY KEY (id)
+);
+
+CREATE INDEX idx_user_sessions_archive_user_id ON user_sessions_archive (user_id);
@@ -0,0 +1,46 @@
+-- Sharding support. Harmless on an unsharded database: the directory stays empty and
+-- align_id_sequences is only called by the sharded Flyway strategy (ShardingConfig).
+
+-- Directory of login identifiers ("email:..." / "phone:...", see IdentifierUtil). Each row lives on the
+-- shard the identifier hashes to and points at the shard holding the user, which makes identifiers
+-- unique across shards. Rows with a null user_id are claims held by a signup in progress.
+CREATE TABLE user_identifiers (
+    identifier VARCHAR(320) NOT NULL,
+    user_id    BIGINT,
+    shard_id   INTEGER      NOT NULL,
+    claim_id   VARCHAR(36),
+    created_at TIMESTAMP(6) NOT NULL,
+    CONSTRAINT pk_user_identifiers PRIMARY KEY (identifier)
+);
+
+CREATE INDEX idx_user_identifiers_user_id ON user_identifiers (user_id);
+
+-- Makes every id generated on this shard satisfy id % stride = shard_id, so ids are unique across shards
+-- and name the shard a row was created on. New ids start above p_min_id, the highest id on any shard,
+-- which keeps them clear of rows created before sharding. Idempotent.
+CREATE FUNCTION align_id_sequences(p_shard_id INTEGER, p_stride INTEGER, p_min_id BIGINT) RETURNS VOID AS $$
+DECLARE
+    target     RECORD;
+    sequence   TEXT;
+    increment  BIGINT;
+    last_value BIGINT;
+    max_id     BIGINT;
+    next_base  BIGINT;
+BEGIN
+    FOR target IN SELECT * FROM (VALUES ('users'), ('user_sessions')) AS t(table_name) LOOP
+        sequence := pg_get_serial_sequence(target.table_name, 'id');
+        SELECT seqincrement INTO increment FROM pg_sequence WHERE seqrelid = sequence::regclass;
+        EXECUTE format('SELECT last_value FROM %s', sequence) INTO last_value;
+        IF increment <> p_stride OR last_value % p_stride <> p_shard_id THEN
+            EXECUTE format('SELECT GREATEST(MAX(id), %s) FROM %I', p_min_id, target.table_name) INTO max_id;
+            -- setval marks the value as used, so the next id is one stride above it
+            next_base := (max_id / p_stride) * p_stride + p_shard_id;
+            IF next_base < 1 THEN
+                next_base := next_base + p_stride;
+            END IF;
+            EXECUTE format('ALTER SEQUENCE %s INCREMENT BY %s', sequence, p_stride);
+            PERFORM setval(sequence, next_base, true);
+        END IF;
+    END LOOP;
+END;
+$$ LANGUAGE plpgsql;
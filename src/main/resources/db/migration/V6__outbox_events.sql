@@ -0,0 +1,22 @@
+-- Outbox for auth events relayed to SQS. Databases that ran with ddl-auto=update after the outbox was
+-- introduced already have the table, hence IF NOT EXISTS.
+
+CREATE TABLE IF NOT EXISTS outbox_events (
+    id              BIGSERIAL     NOT NULL,
+    created_at      TIMESTAMP(6)  NOT NULL,
+    updated_at      TIMESTAMP(6),
+    deleted         BOOLEAN       NOT NULL,
+    event_type      VARCHAR(255)  NOT NULL CHECK (event_type IN ('USER_SIGNED_UP', 'USER_LOGGED_IN')),
+    aggregate_id    BIGINT        NOT NULL,
+    dedup_id        VARCHAR(64)   NOT NULL,
+    payload         TEXT          NOT NULL,
+    status          VARCHAR(255)  NOT NULL CHECK (status IN ('PENDING', 'SENT', 'FAILED')),
+    attempts        INTEGER       NOT NULL,
+    next_attempt_at TIMESTAMP(6)  NOT NULL,
+    sent_at         TIMESTAMP(6),
+    last_error      VARCHAR(1000),
+    CONSTRAINT pk_outbox_events PRIMARY KEY (id),
+    CONSTRAINT uk_outbox_events_dedup_id UNIQUE (dedup_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_outbox_events_status_next_attempt ON outbox_events (status, next_attempt_at);
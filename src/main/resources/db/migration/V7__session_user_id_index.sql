@@ -0,0 +1,4 @@
+-- Session lookups by user. ddl-auto=update never created this index, so baselined databases lack it.
+-- Built CONCURRENTLY so large session tables stay writable; Flyway runs this script outside a transaction.
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_user_sessions_user_id ON user_sessions (user_id);
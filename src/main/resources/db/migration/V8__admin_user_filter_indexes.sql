@@ -0,0 +1,7 @@
+-- The admin user listing filters on role and lock state and pages by id. Rare values (admins, locked
+-- accounts) otherwise walk the whole primary key. (filter, id) serves any value in id order; deleted = true
+-- is already served by idx_users_deleted from V4.
+-- Built CONCURRENTLY so the users table stays writable; Flyway runs this script outside a transaction.
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_users_role_id ON users (role, id);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_users_locked_id ON users ((COALESCE(is_locked, false)), id);
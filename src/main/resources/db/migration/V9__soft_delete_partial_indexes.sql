@@ -0,0 +1,12 @@
+-- Partial unique indexes for live users, replacing the full unique constraints on email and phone
+-- number (dropped in V10) so deleted rows neither bloat them nor block re-signup. The constraints keep
+-- enforcing uniqueness while these build.
+-- Built CONCURRENTLY so the users and user_sessions tables stay writable; Flyway runs this script outside a
+-- transaction. Databases that ran the earlier V4 already have these indexes, hence IF NOT EXISTS.
+
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS uk_users_email_active ON users (email) WHERE deleted = false;
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS uk_users_phone_number_active ON users (phone_number) WHERE deleted = false;
+
+-- Lets the archiver find soft-deleted rows without scanning the live ones
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_users_deleted ON users (id) WHERE deleted = true;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_user_sessions_deleted ON user_sessions (id) WHERE deleted = true;
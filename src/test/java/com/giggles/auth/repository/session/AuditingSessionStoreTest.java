@@ -0,0 +1,78 @@
+package com.giggles.auth.repository.session;
+
+import com.giggles.auth.enums.UserSessionStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AuditingSessionStoreTest {
+
+    private InMemorySessionStore primary;
+    private InMemorySessionStore audit;
+    private AuditingSessionStore store;
+
+    @BeforeEach
+    void setUp() {
+        primary = new InMemorySessionStore(4);
+        audit = new InMemorySessionStore(4);
+        store = new AuditingSessionStore(primary, audit);
+    }
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void createOutsideATransactionWritesBothStores() {
+        SessionRecord session = newSession();
+
+        store.create(session);
+
+        assertThat(primary.isValid(session.getToken())).isTrue();
+        assertThat(audit.isValid(session.getToken())).isTrue();
+    }
+
+    @Test
+    void createInsideATransactionCachesTheSessionOnlyAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        SessionRecord session = newSession();
+
+        store.create(session);
+
+        assertThat(primary.findByToken(session.getToken())).isEmpty();
+        TransactionSynchronizationUtils.invokeAfterCommit(TransactionSynchronizationManager.getSynchronizations());
+        assertThat(primary.isValid(session.getToken())).isTrue();
+    }
+
+    @Test
+    void rolledBackCreateNeverReachesTheCache() {
+        TransactionSynchronizationManager.initSynchronization();
+        SessionRecord session = newSession();
+
+        store.create(session);
+        TransactionSynchronizationUtils.invokeAfterCompletion(
+                TransactionSynchronizationManager.getSynchronizations(), TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        assertThat(primary.findByToken(session.getToken())).isEmpty();
+    }
+
+    private SessionRecord newSession() {
+        return SessionRecord.builder()
+                .token(UUID.randomUUID().toString())
+                .userId(1L)
+                .expiry(LocalDateTime.now().plusHours(1))
+                .status(UserSessionStatus.VALID)
+                .build();
+    }
+}
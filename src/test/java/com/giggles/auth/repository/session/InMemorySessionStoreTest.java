@@ -0,0 +1,48 @@
+package com.giggles.auth.repository.session;
+
+import com.giggles.auth.enums.UserSessionStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InMemorySessionStoreTest extends SessionStoreContractTest {
+
+    private final AtomicLong userIds = new AtomicLong();
+    private InMemorySessionStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new InMemorySessionStore(4);
+    }
+
+    @Override
+    protected SessionStore store() {
+        return store;
+    }
+
+    @Override
+    protected Long newUserId() {
+        return userIds.incrementAndGet();
+    }
+
+    @Test
+    void expiredSessionIsDroppedOnRead() {
+        SessionRecord session = createSession(newUserId(), LocalDateTime.now().minusSeconds(1));
+
+        assertThat(store.findByToken(session.getToken())).isEmpty();
+    }
+
+    @Test
+    void invalidateCachedMarksSessionsInvalid() {
+        SessionRecord session = createSession(newUserId(), LocalDateTime.now().plusHours(1));
+
+        store.invalidateCached(List.of(session.getToken()));
+
+        assertThat(store.findByToken(session.getToken()).orElseThrow().getStatus()).isEqualTo(UserSessionStatus.INVALID);
+    }
+}
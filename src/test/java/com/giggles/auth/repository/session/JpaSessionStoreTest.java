@@ -0,0 +1,99 @@
+package com.giggles.auth.repository.session;
+
+import com.giggles.auth.entity.UserEntity;
+import com.giggles.auth.enums.UserSessionStatus;
+import com.giggles.auth.repository.UserRepository;
+import com.giggles.auth.repository.UserSessionRepository;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Runs against a real PostgreSQL migrated by Flyway. Each store call commits on its own, as in production,
+// so bulk updates are seen by later reads.
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class JpaSessionStoreTest extends SessionStoreContractTest {
+
+    private static EmbeddedPostgres postgres;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserSessionRepository userSessionRepository;
+
+    private JpaSessionStore store;
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) throws IOException {
+        if (postgres == null) {
+            postgres = EmbeddedPostgres.start();
+        }
+        registry.add("spring.datasource.url", () -> postgres.getJdbcUrl("postgres", "postgres"));
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("spring.datasource.password", () -> "postgres");
+    }
+
+    @AfterAll
+    static void stopPostgres() throws IOException {
+        if (postgres != null) {
+            postgres.close();
+            postgres = null;
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        store = new JpaSessionStore(userRepository, userSessionRepository);
+    }
+
+    @Override
+    protected SessionStore store() {
+        return store;
+    }
+
+    @Override
+    protected Long newUserId() {
+        UserEntity user = new UserEntity();
+        user.setEmail(UUID.randomUUID() + "@example.com");
+        user.setPassword("hash");
+        return userRepository.save(user).getId();
+    }
+
+    @Test
+    void expireStaleSessionsMarksOnlyExpiredValidSessions() {
+        Long userId = newUserId();
+        SessionRecord stale = createSession(userId, LocalDateTime.now().minusMinutes(1));
+        createSession(userId, LocalDateTime.now().plusHours(1));
+
+        int expired = store.expireStaleSessions(userId);
+
+        assertThat(expired).isEqualTo(1);
+        assertThat(store.findByToken(stale.getToken()).orElseThrow().getStatus()).isEqualTo(UserSessionStatus.INVALID);
+    }
+
+    @Test
+    void invalidateCachedIsANoOp() {
+        SessionRecord session = createSession(newUserId(), LocalDateTime.now().plusHours(1));
+
+        store.invalidateCached(List.of(session.getToken()));
+
+        assertThat(store.isValid(session.getToken())).isTrue();
+    }
+}
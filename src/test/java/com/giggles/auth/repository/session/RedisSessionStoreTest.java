@@ -0,0 +1,125 @@
+package com.giggles.auth.repository.session;
+
+import com.giggles.auth.enums.UserSessionStatus;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Runs against a real redis-server started from the binary bundled with embedded-redis
+class RedisSessionStoreTest extends SessionStoreContractTest {
+
+    private static RedisServer redisServer;
+    private static LettuceConnectionFactory connectionFactory;
+    private static StringRedisTemplate redisTemplate;
+
+    private final AtomicLong userIds = new AtomicLong();
+    private String keyPrefix;
+    private RedisSessionStore store;
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redisServer = new RedisServer(port);
+        redisServer.start();
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("localhost", port));
+        connectionFactory.afterPropertiesSet();
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        connectionFactory.destroy();
+        redisServer.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        keyPrefix = "test-" + UUID.randomUUID() + ":";
+        store = new RedisSessionStore(redisTemplate, keyPrefix);
+    }
+
+    @Override
+    protected SessionStore store() {
+        return store;
+    }
+
+    @Override
+    protected Long newUserId() {
+        return userIds.incrementAndGet();
+    }
+
+    @Test
+    void sessionKeyExpiresAtSessionExpiry() {
+        SessionRecord session = createSession(newUserId(), LocalDateTime.now().plusMinutes(10));
+
+        Long ttl = redisTemplate.getExpire(sessionKey(session.getToken()));
+
+        assertThat(ttl).isBetween(590L, 600L);
+    }
+
+    @Test
+    void invalidatingAMissingSessionDoesNotCreateAKey() {
+        String token = "missing-" + UUID.randomUUID();
+
+        store.invalidate(token);
+        store.expireAll(List.of(token));
+
+        assertThat(redisTemplate.hasKey(sessionKey(token))).isFalse();
+    }
+
+    @Test
+    void statusChangeKeepsTheTtl() {
+        SessionRecord session = createSession(newUserId(), LocalDateTime.now().plusMinutes(10));
+
+        store.invalidate(session.getToken());
+
+        assertThat(redisTemplate.getExpire(sessionKey(session.getToken()))).isBetween(590L, 600L);
+    }
+
+    @Test
+    void statusChangeRestoresALostTtl() {
+        SessionRecord session = createSession(newUserId(), LocalDateTime.now().plusMinutes(10));
+        redisTemplate.persist(sessionKey(session.getToken()));
+
+        store.expireAll(List.of(session.getToken()));
+
+        assertThat(redisTemplate.getExpire(sessionKey(session.getToken()))).isBetween(590L, 600L);
+        assertThat(store.findByToken(session.getToken()).orElseThrow().getStatus()).isEqualTo(UserSessionStatus.EXPIRED);
+    }
+
+    @Test
+    void bulkStatusChangeCoversEveryToken() {
+        Long userId = newUserId();
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            tokens.add(createSession(userId, LocalDateTime.now().plusHours(1)).getToken());
+        }
+
+        store.invalidateCached(tokens);
+
+        assertThat(tokens).allSatisfy(token -> assertThat(store.isValid(token)).isFalse());
+        assertThat(store.findActiveByUserId(userId)).isEmpty();
+    }
+
+    private String sessionKey(String token) {
+        return keyPrefix + "session:" + token;
+    }
+}
@@ -0,0 +1,106 @@
+package com.giggles.auth.repository.session;
+
+import com.giggles.auth.enums.UserSessionStatus;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Behaviour every SessionStore backend must share; subclasses provide the store and user ids it accepts
+abstract class SessionStoreContractTest {
+
+    protected abstract SessionStore store();
+
+    protected abstract Long newUserId();
+
+    // Sessions share one lifetime, so tests create already-expired sessions before live ones, as real traffic would
+    protected SessionRecord createSession(Long userId, LocalDateTime expiry) {
+        SessionRecord session = SessionRecord.builder()
+                .token(UUID.randomUUID().toString())
+                .userId(userId)
+                .expiry(expiry)
+                .status(UserSessionStatus.VALID)
+                .ipAddress("127.0.0.1")
+                .userAgent("junit")
+                .build();
+        store().create(session);
+        return session;
+    }
+
+    @Test
+    void createdSessionIsFoundByToken() {
+        Long userId = newUserId();
+        SessionRecord session = createSession(userId, LocalDateTime.now().plusHours(1));
+
+        SessionRecord found = store().findByToken(session.getToken()).orElseThrow();
+
+        assertThat(found.getUserId()).isEqualTo(userId);
+        assertThat(found.getStatus()).isEqualTo(UserSessionStatus.VALID);
+        assertThat(found.getIpAddress()).isEqualTo("127.0.0.1");
+        assertThat(found.getUserAgent()).isEqualTo("junit");
+        assertThat(found.expiryEpochMillis() / 1000).isEqualTo(session.expiryEpochMillis() / 1000);
+        assertThat(store().isValid(session.getToken())).isTrue();
+    }
+
+    @Test
+    void unknownTokenIsNotFound() {
+        assertThat(store().findByToken("missing-" + UUID.randomUUID())).isEmpty();
+        assertThat(store().isValid("missing-" + UUID.randomUUID())).isFalse();
+    }
+
+    @Test
+    void invalidatedSessionIsNoLongerValid() {
+        SessionRecord session = createSession(newUserId(), LocalDateTime.now().plusHours(1));
+
+        store().invalidate(session.getToken());
+
+        assertThat(store().findByToken(session.getToken()))
+                .hasValueSatisfying(found -> assertThat(found.getStatus()).isEqualTo(UserSessionStatus.INVALID));
+        assertThat(store().isValid(session.getToken())).isFalse();
+    }
+
+    @Test
+    void expireAllOnlyTouchesTheGivenSessions() {
+        Long userId = newUserId();
+        SessionRecord first = createSession(userId, LocalDateTime.now().plusHours(1));
+        SessionRecord second = createSession(userId, LocalDateTime.now().plusHours(1));
+        SessionRecord untouched = createSession(userId, LocalDateTime.now().plusHours(1));
+
+        store().expireAll(List.of(first.getToken(), second.getToken(), "missing-" + UUID.randomUUID()));
+
+        assertThat(store().findByToken(first.getToken()).orElseThrow().getStatus()).isEqualTo(UserSessionStatus.EXPIRED);
+        assertThat(store().findByToken(second.getToken()).orElseThrow().getStatus()).isEqualTo(UserSessionStatus.EXPIRED);
+        assertThat(store().isValid(untouched.getToken())).isTrue();
+    }
+
+    @Test
+    void findActiveByUserIdReturnsOnlyValidUnexpiredSessionsOfThatUser() {
+        Long userId = newUserId();
+        createSession(userId, LocalDateTime.now().minusMinutes(1));
+        SessionRecord active = createSession(userId, LocalDateTime.now().plusHours(1));
+        SessionRecord invalidated = createSession(userId, LocalDateTime.now().plusHours(1));
+        createSession(newUserId(), LocalDateTime.now().plusHours(1));
+        store().invalidate(invalidated.getToken());
+
+        List<SessionRecord> sessions = store().findActiveByUserId(userId);
+
+        assertThat(sessions).extracting(SessionRecord::getToken).containsExactly(active.getToken());
+    }
+
+    @Test
+    void expireStaleSessionsLeavesLiveSessionsAlone() {
+        Long userId = newUserId();
+        SessionRecord stale = createSession(userId, LocalDateTime.now().minusMinutes(1));
+        SessionRecord live = createSession(userId, LocalDateTime.now().plusHours(1));
+
+        store().expireStaleSessions(userId);
+
+        assertThat(store().isValid(live.getToken())).isTrue();
+        assertThat(store().isValid(stale.getToken())).isFalse();
+        assertThat(store().findActiveByUserId(userId)).extracting(SessionRecord::getToken)
+                .containsExactly(live.getToken());
+    }
+}
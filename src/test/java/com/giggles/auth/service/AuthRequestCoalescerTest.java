@@ -0,0 +1,114 @@
+package com.giggles.auth.service;
+
+import com.giggles.auth.dto.request.SignUpOrLoginRequest;
+import com.giggles.auth.dto.response.AuthResponse;
+import com.giggles.auth.exception.AuthenticationException;
+import com.giggles.auth.exception.ErrorCode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AuthRequestCoalescerTest {
+
+    private AuthRequestCoalescer coalescer;
+    private final AtomicInteger executions = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        coalescer = new AuthRequestCoalescer();
+        ReflectionTestUtils.setField(coalescer, "idempotencyTtlMs", 30_000L);
+        ReflectionTestUtils.setField(coalescer, "idempotencyMaxEntries", 100);
+    }
+
+    @Test
+    void concurrentRequestsWithoutIdempotencyKeyEachGetTheirOwnResponse() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Supplier<AuthResponse> slowLogin = () -> {
+            await(release);
+            return newResponse();
+        };
+
+        CompletableFuture<AuthResponse> first = CompletableFuture.supplyAsync(
+                () -> coalescer.execute(login("a@example.com"), null, slowLogin));
+        CompletableFuture<AuthResponse> second = CompletableFuture.supplyAsync(
+                () -> coalescer.execute(login("a@example.com"), " ", slowLogin));
+        release.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS).getAuthToken())
+                .isNotEqualTo(second.get(5, TimeUnit.SECONDS).getAuthToken());
+        assertThat(executions).hasValue(2);
+    }
+
+    @Test
+    void retryWithTheSameIdempotencyKeyReplaysTheResponse() {
+        AuthResponse first = coalescer.execute(login("a@example.com"), "key-1", this::newResponse);
+        AuthResponse retry = coalescer.execute(login("a@example.com"), "key-1", this::newResponse);
+
+        assertThat(retry).isSameAs(first);
+        assertThat(executions).hasValue(1);
+    }
+
+    @Test
+    void concurrentRetriesWithTheSameIdempotencyKeyShareOneExecution() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Supplier<AuthResponse> slowLogin = () -> {
+            started.countDown();
+            await(release);
+            return newResponse();
+        };
+
+        CompletableFuture<AuthResponse> first = CompletableFuture.supplyAsync(
+                () -> coalescer.execute(login("a@example.com"), "key-1", slowLogin));
+        await(started);
+        CompletableFuture<AuthResponse> retry = CompletableFuture.supplyAsync(
+                () -> coalescer.execute(login("a@example.com"), "key-1", slowLogin));
+        release.countDown();
+
+        assertThat(retry.get(5, TimeUnit.SECONDS)).isSameAs(first.get(5, TimeUnit.SECONDS));
+        assertThat(executions).hasValue(1);
+    }
+
+    @Test
+    void nullAndEmptyFieldsAreDifferentRequests() {
+        SignUpOrLoginRequest withoutAddress = login("a@example.com");
+        SignUpOrLoginRequest withEmptyAddress = login("a@example.com");
+        withEmptyAddress.setAddress("");
+
+        coalescer.execute(withoutAddress, "key-1", this::newResponse);
+
+        assertThatThrownBy(() -> coalescer.execute(withEmptyAddress, "key-1", this::newResponse))
+                .isInstanceOfSatisfying(AuthenticationException.class, e ->
+                        assertThat(e.getErrorCode()).isEqualTo(ErrorCode.IDEMPOTENCY_KEY_REUSED));
+    }
+
+    private SignUpOrLoginRequest login(String email) {
+        SignUpOrLoginRequest request = new SignUpOrLoginRequest();
+        request.setIsSignup(false);
+        request.setEmail(email);
+        request.setPassword("secret");
+        return request;
+    }
+
+    private AuthResponse newResponse() {
+        return AuthResponse.builder().authToken("token-" + executions.incrementAndGet()).build();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
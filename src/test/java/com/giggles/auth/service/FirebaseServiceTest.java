@@ -0,0 +1,116 @@
+package com.giggles.auth.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.giggles.auth.util.FirebaseKeyServer;
+import com.giggles.auth.util.FirebasePublicKeyCache;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.IncorrectClaimException;
+import io.jsonwebtoken.JwtBuilder;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.SignatureException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+// Verifies signed ID tokens end to end against certificates served by a local key server
+class FirebaseServiceTest {
+
+    private static final String PROJECT_ID = "test-project";
+    private static final String ISSUER = "https://securetoken.google.com/" + PROJECT_ID;
+
+    private FirebaseKeyServer keyServer;
+    private FirebaseService firebaseService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        keyServer = new FirebaseKeyServer().publish("key-1", "signing-key-1");
+        FirebasePublicKeyCache cache = new FirebasePublicKeyCache(keyServer.url(), new ObjectMapper(),
+                mock(TaskScheduler.class), Duration.ofMinutes(1));
+        cache.start();
+        firebaseService = new FirebaseService(cache, PROJECT_ID, 30);
+        ReflectionTestUtils.setField(firebaseService, "verifiedTokenCacheSize", 100);
+    }
+
+    @AfterEach
+    void tearDown() {
+        keyServer.close();
+    }
+
+    @Test
+    void validTokenIsVerified() {
+        String token = token("key-1", "signing-key-1").compact();
+
+        FirebaseService.FirebaseIdentity identity = firebaseService.verifyIdToken(token);
+
+        assertThat(identity.uid()).isEqualTo("firebase-uid");
+        assertThat(identity.phoneNumber()).isEqualTo("+15550100");
+        assertThat(firebaseService.validatePhoneNumber(token, "15550100")).isTrue();
+    }
+
+    @Test
+    void tokenSignedWithAnotherKeyIsRejected() {
+        String token = token("key-1", "signing-key-2").compact();
+
+        assertThatThrownBy(() -> firebaseService.verifyIdToken(token)).isInstanceOf(SignatureException.class);
+    }
+
+    @Test
+    void tokenForAnotherProjectIsRejected() {
+        String wrongAudience = token("key-1", "signing-key-1").audience().single("other-project").compact();
+        String wrongIssuer = token("key-1", "signing-key-1").issuer("https://securetoken.google.com/other").compact();
+
+        assertThatThrownBy(() -> firebaseService.verifyIdToken(wrongAudience)).isInstanceOf(IncorrectClaimException.class);
+        assertThatThrownBy(() -> firebaseService.verifyIdToken(wrongIssuer)).isInstanceOf(IncorrectClaimException.class);
+    }
+
+    @Test
+    void expiredTokenIsRejected() {
+        Instant issuedAt = Instant.now().minus(Duration.ofHours(2));
+        String token = token("key-1", "signing-key-1")
+                .issuedAt(Date.from(issuedAt))
+                .expiration(Date.from(issuedAt.plus(Duration.ofHours(1))))
+                .compact();
+
+        assertThatThrownBy(() -> firebaseService.verifyIdToken(token)).isInstanceOf(ExpiredJwtException.class);
+    }
+
+    @Test
+    void tokenSignedWithARotatedKeyIsVerified() {
+        keyServer.publish("key-2", "signing-key-2");
+        String token = token("key-2", "signing-key-2").compact();
+
+        assertThat(firebaseService.verifyIdToken(token).uid()).isEqualTo("firebase-uid");
+    }
+
+    @Test
+    void tokenWithAnUnpublishedKeyIdIsRejected() {
+        String token = token("key-3", "signing-key-1").compact();
+
+        assertThatThrownBy(() -> firebaseService.verifyIdToken(token)).isInstanceOf(SignatureException.class);
+    }
+
+    private JwtBuilder token(String keyId, String signingFixture) {
+        Instant now = Instant.now();
+        return Jwts.builder()
+                .header().keyId(keyId).and()
+                .issuer(ISSUER)
+                .audience().add(PROJECT_ID).and()
+                .subject("firebase-uid")
+                .claim("auth_time", now.getEpochSecond())
+                .claim("phone_number", "+15550100")
+                .issuedAt(Date.from(now))
+                .expiration(Date.from(now.plus(Duration.ofHours(1))))
+                .signWith(FirebaseKeyServer.privateKey(signingFixture), Jwts.SIG.RS256);
+    }
+}
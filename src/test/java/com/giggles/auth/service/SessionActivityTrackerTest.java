@@ -0,0 +1,79 @@
+package com.giggles.auth.service;
+
+import com.giggles.auth.config.ShardingProperties;
+import com.giggles.auth.repository.session.SessionStore;
+import com.giggles.auth.sharding.ShardRouter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SessionActivityTrackerTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private SessionActivityTracker tracker;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        tracker = new SessionActivityTracker(jdbcTemplate, mock(SessionStore.class), new ShardRouter(new ShardingProperties()));
+        ReflectionTestUtils.setField(tracker, "enabled", true);
+        ReflectionTestUtils.setField(tracker, "maxBatchSize", 2);
+    }
+
+    @Test
+    void flushWritesPendingSessionsInBatches() {
+        when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenReturn(2);
+        for (int i = 0; i < 5; i++) {
+            tracker.recordActivity("token-" + i);
+        }
+
+        tracker.flush();
+        tracker.flush();
+
+        verify(jdbcTemplate, times(3)).execute(any(ConnectionCallback.class));
+    }
+
+    @Test
+    void failedWriteEndsTheFlushAndKeepsTheBatch() {
+        when(jdbcTemplate.execute(any(ConnectionCallback.class)))
+                .thenThrow(new DataAccessResourceFailureException("database down"));
+        for (int i = 0; i < 5; i++) {
+            tracker.recordActivity("token-" + i);
+        }
+
+        tracker.flush();
+        verify(jdbcTemplate, times(1)).execute(any(ConnectionCallback.class));
+
+        // Nothing was lost: the next flush starts over with all five sessions
+        when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenReturn(2);
+        tracker.flush();
+        verify(jdbcTemplate, times(4)).execute(any(ConnectionCallback.class));
+    }
+
+    @Test
+    void hitsArrivingDuringAFlushWaitForTheNextOne() {
+        AtomicInteger newTokens = new AtomicInteger();
+        when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenAnswer(invocation -> {
+            tracker.recordActivity("late-" + newTokens.incrementAndGet());
+            tracker.recordActivity("late-" + newTokens.incrementAndGet());
+            return 2;
+        });
+        tracker.recordActivity("token-0");
+        tracker.recordActivity("token-1");
+
+        tracker.flush();
+
+        verify(jdbcTemplate, times(1)).execute(any(ConnectionCallback.class));
+    }
+}
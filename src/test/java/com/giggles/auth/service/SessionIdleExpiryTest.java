@@ -0,0 +1,96 @@
+package com.giggles.auth.service;
+
+import com.giggles.auth.config.ShardingProperties;
+import com.giggles.auth.enums.UserSessionStatus;
+import com.giggles.auth.repository.session.InMemorySessionStore;
+import com.giggles.auth.repository.session.SessionRecord;
+import com.giggles.auth.sharding.ShardRouter;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+// Idle expiry against a real PostgreSQL with a store that never writes user_sessions, as the memory
+// and redis stores do when the audit store is off
+class SessionIdleExpiryTest {
+
+    private static EmbeddedPostgres postgres;
+    private static JdbcTemplate jdbcTemplate;
+
+    private InMemorySessionStore sessionStore;
+    private SessionActivityTracker tracker;
+
+    @BeforeAll
+    static void startPostgres() throws IOException {
+        postgres = EmbeddedPostgres.start();
+        // Same as spring.flyway.postgresql.transactional-lock=false, which the CONCURRENTLY migrations need
+        Flyway.configure()
+                .dataSource(postgres.getPostgresDatabase())
+                .configuration(Map.of("flyway.postgresql.transactional.lock", "false"))
+                .load()
+                .migrate();
+        jdbcTemplate = new JdbcTemplate(postgres.getPostgresDatabase());
+    }
+
+    @AfterAll
+    static void stopPostgres() throws IOException {
+        postgres.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM user_sessions");
+        jdbcTemplate.update("DELETE FROM users");
+        sessionStore = new InMemorySessionStore(4);
+        tracker = new SessionActivityTracker(jdbcTemplate, sessionStore, new ShardRouter(new ShardingProperties()));
+        ReflectionTestUtils.setField(tracker, "enabled", true);
+        ReflectionTestUtils.setField(tracker, "maxBatchSize", 2);
+        ReflectionTestUtils.setField(tracker, "idleTimeoutMinutes", 30L);
+    }
+
+    @Test
+    void idleExpiryPassesOverStaleRowsOnceWhenTheStoreDoesNotWriteThem() {
+        Long userId = jdbcTemplate.queryForObject(
+                "INSERT INTO users (created_at, deleted, email, password, role, session_type) " +
+                "VALUES (now(), false, 'idle@example.com', 'hash', 'USER', 'MULTI') RETURNING id", Long.class);
+        List<String> stale = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            stale.add(createSession(userId, "stale-" + i, LocalDateTime.now().minusHours(2)));
+        }
+        String fresh = createSession(userId, "fresh", LocalDateTime.now());
+
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> tracker.expireIdleSessions());
+
+        assertThat(stale).allSatisfy(token -> assertThat(sessionStore.findByToken(token).orElseThrow().getStatus())
+                .isEqualTo(UserSessionStatus.EXPIRED));
+        assertThat(sessionStore.isValid(fresh)).isTrue();
+        // The store never touched the rows, so a second run goes over them again and still finishes
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> tracker.expireIdleSessions());
+    }
+
+    private String createSession(Long userId, String token, LocalDateTime createdAt) {
+        jdbcTemplate.update("INSERT INTO user_sessions (created_at, deleted, user_id, token, expiry, status) " +
+                "VALUES (?, false, ?, ?, ?, 'VALID')", createdAt, userId, token, LocalDateTime.now().plusHours(4));
+        sessionStore.create(SessionRecord.builder()
+                .token(token)
+                .userId(userId)
+                .expiry(LocalDateTime.now().plusHours(4))
+                .status(UserSessionStatus.VALID)
+                .build());
+        return token;
+    }
+}
@@ -0,0 +1,46 @@
+package com.giggles.auth.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.giggles.auth.repository.UserRepository;
+import com.giggles.auth.repository.UserSessionRepository;
+import com.giggles.auth.repository.session.SessionStore;
+import com.giggles.auth.util.JwtUtil;
+import com.giggles.auth.util.PasswordUtil;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.DefaultApplicationArguments;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.sql.DataSource;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class WarmupRunnerTest {
+
+    @Test
+    void failingStepDoesNotSkipTheStepsAfterIt() {
+        PasswordUtil passwordUtil = mock(PasswordUtil.class);
+        when(passwordUtil.encodePassword(anyString())).thenThrow(new IllegalStateException("bcrypt broken"));
+        UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.findActiveByEmail(anyString())).thenThrow(new DataAccessResourceFailureException("database down"));
+        JwtUtil jwtUtil = mock(JwtUtil.class);
+        SessionStore sessionStore = mock(SessionStore.class);
+
+        WarmupRunner runner = new WarmupRunner(passwordUtil, jwtUtil, new ObjectMapper(), userRepository,
+                mock(UserSessionRepository.class), sessionStore, mock(DataSource.class));
+        ReflectionTestUtils.setField(runner, "iterations", 2);
+        ReflectionTestUtils.setField(runner, "bcryptIterations", 1);
+        ReflectionTestUtils.setField(runner, "queryIterations", 2);
+        ReflectionTestUtils.setField(runner, "maxDurationMs", 10_000L);
+
+        runner.run(new DefaultApplicationArguments());
+
+        verify(jwtUtil, atLeastOnce()).parseToken(any());
+        verify(sessionStore, atLeastOnce()).isValid(anyString());
+    }
+}
@@ -0,0 +1,293 @@
+package com.giggles.auth.sharding;
+
+import com.giggles.auth.dto.request.SignUpOrLoginRequest;
+import com.giggles.auth.dto.response.AuthResponse;
+import com.giggles.auth.dto.response.RebalanceResponse;
+import com.giggles.auth.exception.AuthenticationException;
+import com.giggles.auth.filter.SessionAuthenticationFilter;
+import com.giggles.auth.repository.session.SessionStore;
+import com.giggles.auth.service.AuthenticationService;
+import com.giggles.auth.service.SessionActivityTracker;
+import com.giggles.auth.util.IdentifierUtil;
+import com.giggles.auth.util.JwtUtil;
+import com.giggles.auth.util.PasswordUtil;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Runs the sharded service against two real PostgreSQL instances. The ring is [0, 1] with previous ring [0],
+// as right after adding shard 1, so users inserted straight into shard 0 stand in for users created before it.
+@SpringBootTest
+class ShardingIntegrationTest {
+
+    private static final int ID_STRIDE = 16;
+
+    private static EmbeddedPostgres shard0;
+    private static EmbeddedPostgres shard1;
+
+    @Autowired
+    private AuthenticationService authenticationService;
+
+    @Autowired
+    private ShardRebalancer shardRebalancer;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private UserDirectory userDirectory;
+
+    @Autowired
+    private SessionStore sessionStore;
+
+    @Autowired
+    private SessionActivityTracker sessionActivityTracker;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private PasswordUtil passwordUtil;
+
+    @DynamicPropertySource
+    static void shards(DynamicPropertyRegistry registry) throws IOException {
+        if (shard0 == null) {
+            shard0 = EmbeddedPostgres.start();
+            shard1 = EmbeddedPostgres.start();
+        }
+        registry.add("sharding.enabled", () -> "true");
+        registry.add("sharding.id-stride", () -> ID_STRIDE);
+        registry.add("sharding.previous-ring", () -> "0");
+        addShard(registry, 0, shard0);
+        addShard(registry, 1, shard1);
+        registry.add("warmup.enabled", () -> "false");
+        registry.add("spring.jpa.show-sql", () -> "false");
+    }
+
+    private static void addShard(DynamicPropertyRegistry registry, int id, EmbeddedPostgres postgres) {
+        String prefix = "sharding.shards[" + id + "].";
+        registry.add(prefix + "id", () -> id);
+        registry.add(prefix + "url", () -> postgres.getJdbcUrl("postgres", "postgres"));
+        registry.add(prefix + "username", () -> "postgres");
+        registry.add(prefix + "password", () -> "postgres");
+    }
+
+    @AfterAll
+    static void stopShards() throws IOException {
+        if (shard0 != null) {
+            shard0.close();
+            shard1.close();
+            shard0 = null;
+            shard1 = null;
+        }
+    }
+
+    @Test
+    void signupIsRoutedToTheShardItsEmailHashesTo() {
+        String email = emailOn(1);
+
+        AuthResponse response = signUp(email, null);
+
+        long userId = response.getUser().getId();
+        assertThat(userId % ID_STRIDE).isEqualTo(1);
+        assertThat(countUsers(shard(1), email)).isEqualTo(1);
+        assertThat(countUsers(shard(0), email)).isZero();
+        assertThat(jwtUtil.parseToken(response.getAuthToken()).shardId()).isEqualTo(1);
+    }
+
+    @Test
+    void loginWithThePhoneNumberFindsAUserRegisteredOnAnotherShard() {
+        String email = emailOn(0);
+        String phone = phoneOn(1);
+        long userId = signUp(email, phone).getUser().getId();
+
+        AuthResponse login = login(null, phone);
+
+        assertThat(login.getUser().getId()).isEqualTo(userId);
+        assertThat(jwtUtil.parseToken(login.getAuthToken()).shardId()).isZero();
+        assertThat(authenticates(login.getAuthToken())).isTrue();
+    }
+
+    @Test
+    void claimWhoseCompletionFailedIsRepairedByTheNextLookup() {
+        String email = emailOn(0);
+        String phone = phoneOn(1);
+        long userId = signUp(email, phone).getUser().getId();
+        String phoneKey = IdentifierUtil.phoneIdentifier(phone);
+        shard(1).update("UPDATE user_identifiers SET user_id = NULL WHERE identifier = ?", phoneKey);
+
+        assertThat(login(null, phone).getUser().getId()).isEqualTo(userId);
+
+        assertThat(shard(1).queryForObject("SELECT user_id FROM user_identifiers WHERE identifier = ?", Long.class,
+                phoneKey)).isEqualTo(userId);
+        assertThatThrownBy(() -> signUp(emailOn(0), phone))
+                .isInstanceOfSatisfying(AuthenticationException.class, e -> assertThat(e.getStatusCode()).isEqualTo(409));
+    }
+
+    @Test
+    void staleClaimIsTakenOverButAFreshOneIsNot() {
+        String staleEmail = emailOn(1);
+        String freshEmail = emailOn(1);
+        shard(1).update("INSERT INTO user_identifiers (identifier, shard_id, claim_id, created_at) " +
+                "VALUES (?, 1, 'died', now() - interval '1 hour')", IdentifierUtil.emailIdentifier(staleEmail));
+        shard(1).update("INSERT INTO user_identifiers (identifier, shard_id, claim_id, created_at) " +
+                "VALUES (?, 1, 'running', now())", IdentifierUtil.emailIdentifier(freshEmail));
+
+        assertThat(signUp(staleEmail, null).getUser().getId()).isPositive();
+        assertThatThrownBy(() -> signUp(freshEmail, null))
+                .isInstanceOfSatisfying(AuthenticationException.class, e -> assertThat(e.getStatusCode()).isEqualTo(409));
+    }
+
+    @Test
+    void moveThatFailsMidwayIsUndoneAndFinishedByTheNextRun() {
+        String email = emailOn(1);
+        String emailKey = IdentifierUtil.emailIdentifier(email);
+        long userId = createUserBeforeTheRingChanged(email);
+        String token = createSessionOnShard0(userId, email);
+        // Registering the user on its new shard fails, after the user and its session were copied there
+        shard(1).execute("CREATE FUNCTION fail_move() RETURNS trigger AS $$ BEGIN " +
+                "IF NEW.identifier = '" + emailKey + "' AND NEW.shard_id = 1 THEN RAISE EXCEPTION 'injected'; END IF; " +
+                "RETURN NEW; END $$ LANGUAGE plpgsql");
+        shard(1).execute("CREATE TRIGGER fail_move BEFORE INSERT OR UPDATE ON user_identifiers " +
+                "FOR EACH ROW EXECUTE FUNCTION fail_move()");
+        try {
+            RebalanceResponse failed = shardRebalancer.rebalance();
+
+            assertThat(failed.getFailed()).isPositive();
+            assertThat(countUsers(shard(0), email)).isEqualTo(1);
+            assertThat(countUsers(shard(1), email)).isZero();
+            assertThat(registeredShard(emailKey)).isZero();
+            assertThat(authenticates(token)).isTrue();
+        } finally {
+            shard(1).execute("DROP TRIGGER fail_move ON user_identifiers");
+            shard(1).execute("DROP FUNCTION fail_move()");
+        }
+
+        RebalanceResponse moved = shardRebalancer.rebalance();
+
+        assertThat(moved.getFailed()).isZero();
+        assertThat(countUsers(shard(0), email)).isZero();
+        assertThat(shard(1).queryForObject("SELECT id FROM users WHERE email = ?", Long.class, email)).isEqualTo(userId);
+        assertThat(shard(1).queryForObject("SELECT COUNT(*) FROM user_sessions WHERE token = ?", Integer.class, token))
+                .isEqualTo(1);
+        assertThat(registeredShard(emailKey)).isEqualTo(1);
+        assertThat(login(email, null).getUser().getId()).isEqualTo(userId);
+    }
+
+    @Test
+    void tokenIssuedBeforeAMoveFollowsTheForwardingRowOnly() {
+        String email = emailOn(1);
+        long userId = createUserBeforeTheRingChanged(email);
+        String token = createSessionOnShard0(userId, email);
+
+        shardRebalancer.rebalance();
+
+        assertThat(userDirectory.movedTo(0, userId)).contains(1);
+        assertThat(authenticates(token)).isTrue();
+
+        // Without the forwarding row the token's own shard is the only one asked
+        shard(0).update("DELETE FROM moved_users WHERE user_id = ?", userId);
+        assertThat(authenticates(token)).isFalse();
+    }
+
+    private AuthResponse signUp(String email, String phone) {
+        SignUpOrLoginRequest request = request(true, email, phone);
+        request.setName("Sharded User");
+        return authenticationService.signUpOrLogin(request, new MockHttpServletRequest());
+    }
+
+    private AuthResponse login(String email, String phone) {
+        return authenticationService.signUpOrLogin(request(false, email, phone), new MockHttpServletRequest());
+    }
+
+    private SignUpOrLoginRequest request(boolean isSignup, String email, String phone) {
+        SignUpOrLoginRequest request = new SignUpOrLoginRequest();
+        request.setIsSignup(isSignup);
+        request.setEmail(email);
+        request.setPhoneNumber(phone);
+        request.setPassword("Passw0rd!");
+        return request;
+    }
+
+    private long createUserBeforeTheRingChanged(String email) {
+        Long userId = shard(0).queryForObject(
+                "INSERT INTO users (created_at, deleted, name, email, password, role, session_type) " +
+                "VALUES (now(), false, 'Old User', ?, ?, 'USER', 'MULTI') RETURNING id",
+                Long.class, email, passwordUtil.encodePassword("Passw0rd!"));
+        // Under the old ring every identifier lived on shard 0
+        shard(0).update("INSERT INTO user_identifiers (identifier, user_id, shard_id, created_at) VALUES (?, ?, 0, now())",
+                IdentifierUtil.emailIdentifier(email), userId);
+        return userId;
+    }
+
+    private String createSessionOnShard0(long userId, String email) {
+        String token = jwtUtil.generateToken(userId, email, "USER", 0);
+        shard(0).update("INSERT INTO user_sessions (created_at, deleted, user_id, token, expiry, status) " +
+                "VALUES (now(), false, ?, ?, ?, 'VALID')", userId, token, LocalDateTime.now().plusHours(1));
+        return token;
+    }
+
+    private boolean authenticates(String token) {
+        SessionAuthenticationFilter filter = new SessionAuthenticationFilter(jwtUtil, sessionStore,
+                sessionActivityTracker, shardRouter, userDirectory);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer " + token);
+        SecurityContextHolder.clearContext();
+        try {
+            filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+            return SecurityContextHolder.getContext().getAuthentication() != null;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    private Integer registeredShard(String identifier) {
+        return shard(shardRouter.shardFor(identifier)).queryForObject(
+                "SELECT shard_id FROM user_identifiers WHERE identifier = ?", Integer.class, identifier);
+    }
+
+    private int countUsers(JdbcTemplate shard, String email) {
+        return shard.queryForObject("SELECT COUNT(*) FROM users WHERE email = ?", Integer.class, email);
+    }
+
+    private JdbcTemplate shard(int id) {
+        return new JdbcTemplate((id == 0 ? shard0 : shard1).getPostgresDatabase());
+    }
+
+    private String emailOn(int shard) {
+        while (true) {
+            String email = UUID.randomUUID() + "@example.com";
+            if (shardRouter.shardFor(IdentifierUtil.emailIdentifier(email)) == shard) {
+                return email;
+            }
+        }
+    }
+
+    private String phoneOn(int shard) {
+        while (true) {
+            String phone = String.valueOf(ThreadLocalRandom.current().nextLong(1_000_000_000L, 9_999_999_999L));
+            if (shardRouter.shardFor(IdentifierUtil.phoneIdentifier(phone)) == shard) {
+                return phone;
+            }
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.giggles.auth.util;
+
+import com.giggles.auth.enums.UserRole;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.MalformedJwtException;
+import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SignatureException;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CompactTokenCodecTest {
+
+    private static final byte[] SECRET = "compact-token-codec-test-secret-0123456789".getBytes(StandardCharsets.UTF_8);
+    private static final SecretKey KEY = Keys.hmacShaKeyFor(SECRET);
+
+    private final CompactTokenCodec codec = new CompactTokenCodec(SECRET);
+
+    @Test
+    void roundTrip() {
+        long expiresAt = futureSeconds();
+        String token = codec.encode(42L, UserRole.ADMIN, "token-id", expiresAt, 3);
+
+        TokenClaims claims = codec.decode(token);
+
+        assertThat(CompactTokenCodec.isCompact(token)).isTrue();
+        assertThat(claims.userId()).isEqualTo(42L);
+        assertThat(claims.role()).isEqualTo(UserRole.ADMIN.name());
+        assertThat(claims.phoneNumber()).isNull();
+        assertThat(claims.tokenId()).isEqualTo("token-id");
+        assertThat(claims.expiresAt()).isEqualTo(expiresAt * 1000);
+        assertThat(claims.shardId()).isEqualTo(3);
+    }
+
+    @Test
+    void roundTripWithoutShard() {
+        TokenClaims claims = codec.decode(codec.encode(7L, UserRole.USER, "id", futureSeconds(), null));
+
+        assertThat(claims.userId()).isEqualTo(7L);
+        assertThat(claims.shardId()).isNull();
+    }
+
+    @Test
+    void tamperedSignatureIsRejected() {
+        String token = codec.encode(42L, UserRole.USER, "id", futureSeconds(), null);
+        String[] parts = token.split("\\.");
+        byte[] signature = Base64.getUrlDecoder().decode(parts[2]);
+        signature[0] ^= 1;
+
+        String tampered = parts[0] + '.' + parts[1] + '.' + Base64.getUrlEncoder().withoutPadding().encodeToString(signature);
+
+        assertThatThrownBy(() -> codec.decode(tampered)).isInstanceOf(SignatureException.class);
+    }
+
+    @Test
+    void tamperedPayloadIsRejected() {
+        String token = codec.encode(42L, UserRole.USER, "id", futureSeconds(), null);
+        String[] parts = token.split("\\.");
+        String escalated = base64("{\"u\":42,\"r\":" + UserRole.ADMIN.getCode() + ",\"jti\":\"id\",\"exp\":" + futureSeconds() + "}");
+
+        assertThatThrownBy(() -> codec.decode(parts[0] + '.' + escalated + '.' + parts[2]))
+                .isInstanceOf(SignatureException.class);
+    }
+
+    @Test
+    void tokenSignedWithAnotherKeyIsRejected() {
+        CompactTokenCodec other = new CompactTokenCodec("another-secret-another-secret-another-secret".getBytes(StandardCharsets.UTF_8));
+        String token = other.encode(42L, UserRole.USER, "id", futureSeconds(), null);
+
+        assertThatThrownBy(() -> codec.decode(token)).isInstanceOf(SignatureException.class);
+    }
+
+    @Test
+    void unexpectedHeaderIsRejected() {
+        String[] parts = codec.encode(42L, UserRole.USER, "id", futureSeconds(), null).split("\\.");
+
+        for (String header : new String[]{"{\"alg\":\"none\"}", "{\"alg\":\"HS512\"}", "{\"alg\":\"HS256\",\"kid\":\"x\"}"}) {
+            String token = base64(header) + '.' + parts[1] + '.' + parts[2];
+            assertThat(CompactTokenCodec.isCompact(token)).isFalse();
+            assertThatThrownBy(() -> codec.decode(token)).isInstanceOf(MalformedJwtException.class);
+        }
+    }
+
+    @Test
+    void expiredTokenIsRejected() {
+        String token = codec.encode(42L, UserRole.USER, "id", System.currentTimeMillis() / 1000 - 1, null);
+
+        assertThatThrownBy(() -> codec.decode(token)).isInstanceOf(ExpiredJwtException.class);
+    }
+
+    @Test
+    void malformedTokensAreRejected() {
+        String[] parts = codec.encode(42L, UserRole.USER, "id", futureSeconds(), null).split("\\.");
+
+        assertThatThrownBy(() -> codec.decode(parts[0] + '.' + parts[1] + '.' + "not*base64"))
+                .isInstanceOf(MalformedJwtException.class);
+        assertThatThrownBy(() -> codec.decode(parts[0] + '.' + "pay!oad" + '.' + parts[2]))
+                .isInstanceOf(MalformedJwtException.class);
+        assertThatThrownBy(() -> codec.decode(parts[0] + '.' + parts[1]))
+                .isInstanceOf(MalformedJwtException.class);
+        assertThatThrownBy(() -> codec.decode(parts[0] + '.' + parts[1] + '.' + parts[2] + ".extra"))
+                .isInstanceOf(MalformedJwtException.class);
+    }
+
+    @Test
+    void validlySignedPayloadWithoutRequiredClaimsIsRejected() {
+        String token = Jwts.builder().claim("jti", "id").expiration(new Date(futureSeconds() * 1000)).signWith(KEY).compact();
+
+        assertThatThrownBy(() -> codec.decode(token)).isInstanceOf(MalformedJwtException.class);
+    }
+
+    @Test
+    void compactTokenVerifiesWithJjwt() {
+        long expiresAt = futureSeconds();
+        String token = codec.encode(42L, UserRole.ADMIN, "token-id", expiresAt, 3);
+
+        Claims claims = Jwts.parser().verifyWith(KEY).build().parseSignedClaims(token).getPayload();
+
+        assertThat(claims.get("u", Long.class)).isEqualTo(42L);
+        assertThat(claims.get("r", Integer.class)).isEqualTo(UserRole.ADMIN.getCode());
+        assertThat(claims.getId()).isEqualTo("token-id");
+        assertThat(claims.getExpiration()).isEqualTo(new Date(expiresAt * 1000));
+        assertThat(claims.get("sh", Integer.class)).isEqualTo(3);
+    }
+
+    @Test
+    void jjwtTokenWithCompactClaimsDecodes() {
+        long expiresAt = futureSeconds();
+        String token = Jwts.builder()
+                .claim("u", 42L)
+                .claim("r", UserRole.USER.getCode())
+                .id("token-id")
+                .expiration(new Date(expiresAt * 1000))
+                .signWith(KEY, Jwts.SIG.HS256)
+                .compact();
+
+        TokenClaims claims = codec.decode(token);
+
+        assertThat(claims.userId()).isEqualTo(42L);
+        assertThat(claims.role()).isEqualTo(UserRole.USER.name());
+        assertThat(claims.tokenId()).isEqualTo("token-id");
+        assertThat(claims.expiresAt()).isEqualTo(expiresAt * 1000);
+    }
+
+    private static long futureSeconds() {
+        return System.currentTimeMillis() / 1000 + 3600;
+    }
+
+    private static String base64(String json) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,97 @@
+package com.giggles.auth.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.TaskScheduler;
+
+import java.io.IOException;
+import java.security.PublicKey;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class FirebasePublicKeyCacheTest {
+
+    private FirebaseKeyServer keyServer;
+    private FirebasePublicKeyCache cache;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        keyServer = new FirebaseKeyServer().publish("key-1", "signing-key-1");
+        cache = new FirebasePublicKeyCache(keyServer.url(), new ObjectMapper(), mock(TaskScheduler.class),
+                Duration.ofMinutes(1));
+        cache.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        keyServer.close();
+    }
+
+    @Test
+    void knownKeyIsServedFromMemory() {
+        assertThat(cache.getKey("key-1")).isNotNull();
+        assertThat(cache.getKey("key-1")).isNotNull();
+
+        assertThat(keyServer.requests()).isEqualTo(1);
+    }
+
+    @Test
+    void rotatedKeyIsFetchedOnDemand() {
+        keyServer.publish("key-2", "signing-key-2");
+
+        assertThat(cache.getKey("key-2")).isNotNull();
+        assertThat(keyServer.requests()).isEqualTo(2);
+    }
+
+    @Test
+    void unknownKeysBetweenRefreshesAreRejectedWithoutFetching() {
+        assertThat(cache.getKey("unknown-1")).isNull();
+        keyServer.publish("key-2", "signing-key-2");
+
+        assertThat(cache.getKey("unknown-2")).isNull();
+        assertThat(cache.getKey("key-2")).isNull();
+        assertThat(keyServer.requests()).isEqualTo(2);
+    }
+
+    @Test
+    void concurrentUnknownKeysTriggerOneFetch() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<PublicKey>> lookups = new ArrayList<>();
+            for (int i = 0; i < 64; i++) {
+                String keyId = "unknown-" + i;
+                lookups.add(executor.submit(() -> {
+                    start.await();
+                    return cache.getKey(keyId);
+                }));
+            }
+            start.countDown();
+            for (Future<PublicKey> lookup : lookups) {
+                assertThat(lookup.get()).isNull();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(keyServer.requests()).isEqualTo(2);
+    }
+
+    @Test
+    void failedRefreshKeepsCachedKeys() {
+        keyServer.failWith(500);
+
+        assertThat(cache.getKey("key-2")).isNull();
+        assertThat(cache.getKey("key-1")).isNotNull();
+    }
+}